@@ -0,0 +1,92 @@
+package algorithm;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmarks of Heap insert, poll and changePriority on n values with priorities <br>
+ * drawn from a fixed seed. The sizes cover the nodes of the smallest cavern up to <br>
+ * those of a 2000 x 2000 one. Times are for all n operations of a kind. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations= 3, time= 2)
+@Measurement(iterations= 5, time= 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HeapBenchmark {
+    /** Seed of the priorities */
+    private static final long SEED= 42;
+
+    /** Number of values in the heap */
+    @Param({ "96", "1000", "40000", "4000000" })
+    public int n;
+
+    private Integer[] values;
+    private double[] priorities;
+    private double[] otherPriorities;
+
+    /** A full min-heap, for changePriority */
+    private Heap<Integer> full;
+    /** true iff full has otherPriorities rather than priorities */
+    private boolean changed;
+
+    @Setup
+    public void setUp() {
+        var rand= new Random(SEED);
+        values= new Integer[n];
+        priorities= new double[n];
+        otherPriorities= new double[n];
+        for (var i= 0; i < n; i++ ) {
+            values[i]= i;
+            priorities[i]= rand.nextInt(n);
+            otherPriorities[i]= rand.nextInt(n);
+        }
+        full= insertAll();
+    }
+
+    /** Return a new min-heap of all values, with priorities. */
+    private Heap<Integer> insertAll() {
+        var heap= new Heap<Integer>(true);
+        for (var i= 0; i < n; i++ ) {
+            heap.insert(values[i], priorities[i]);
+        }
+        return heap;
+    }
+
+    @Benchmark
+    public Heap<Integer> insert() {
+        return insertAll();
+    }
+
+    /** Insert all values, then poll them all; subtract insert() to get the polls. */
+    @Benchmark
+    public void insertThenPoll(Blackhole bh) {
+        var heap= insertAll();
+        while (heap.size() > 0) {
+            bh.consume(heap.poll());
+        }
+    }
+
+    /** Change the priority of every value in a full heap, between two sets of priorities. */
+    @Benchmark
+    public Heap<Integer> changePriority() {
+        var p= changed ? priorities : otherPriorities;
+        for (var i= 0; i < n; i++ ) {
+            full.changePriority(values[i], p[i]);
+        }
+        changed= !changed;
+        return full;
+    }
+}
@@ -0,0 +1,57 @@
+package algorithm;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graph.Cavern;
+import graph.Node;
+
+/** Benchmark of Path.shortestPath from where the flee phase starts to the exit, <br>
+ * in flee caverns generated from a fixed seed, as GameState generates them. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations= 3, time= 2)
+@Measurement(iterations= 5, time= 2)
+@Fork(value= 1, jvmArgsAppend= "-Xmx3g")
+@State(Scope.Benchmark)
+public class PathBenchmark {
+    /** Seed of every cavern generated */
+    private static final long SEED= 42;
+
+    /** Size of the caverns, as rows x columns */
+    @Param({ "8x12", "25x40", "200x200", "1000x1000" })
+    public String size;
+
+    private Node start;
+    private Node exit;
+
+    @Setup
+    public void setUp() {
+        var rows= Integer.parseInt(size.substring(0, size.indexOf('x')));
+        var cols= Integer.parseInt(size.substring(size.indexOf('x') + 1));
+        var rand= new Random(SEED);
+        var find= Cavern.digFindCavern(rows, cols, rand);
+        var orbTile= find.getTarget().getTile();
+        var flee= Cavern.digFindCavern(rows, cols, orbTile.getRow(), orbTile.getColumn(), rand);
+        start= flee.getNodeAt(orbTile.getRow(), orbTile.getColumn());
+        exit= flee.getTarget();
+    }
+
+    @Benchmark
+    public List<Node> shortestPath() {
+        return Path.shortestPath(start, exit);
+    }
+}
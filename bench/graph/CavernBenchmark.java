@@ -0,0 +1,96 @@
+package graph;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of generating, searching and serializing caverns, from the smallest <br>
+ * cavern a game can have up to 1000 x 1000. Caverns are generated from a fixed seed, <br>
+ * so every run measures the same caverns. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations= 3, time= 2)
+@Measurement(iterations= 5, time= 2)
+@Fork(value= 1, jvmArgsAppend= "-Xmx3g")
+@State(Scope.Benchmark)
+public class CavernBenchmark {
+    /** Seed of every cavern generated */
+    static final long SEED= 42;
+
+    /** Size of the caverns, as rows x columns */
+    @Param({ "8x12", "25x40", "200x200", "1000x1000" })
+    public String size;
+
+    private int rows;
+    private int cols;
+    private Cavern find;
+    private Cavern flee;
+    /** Node of flee under the orb of find: where the flee phase starts */
+    private Node fleeStart;
+    private List<String> serialized;
+
+    @Setup
+    public void setUp() {
+        rows= rows(size);
+        cols= columns(size);
+        var caverns= GameCaverns.generate(SEED, rows, cols);
+        find= caverns.findCavern;
+        flee= caverns.fleeCavern;
+        var orbTile= find.getTarget().getTile();
+        fleeStart= flee.getNodeAt(orbTile.getRow(), orbTile.getColumn());
+        serialized= flee.serialize();
+    }
+
+    /** Return the number of rows in size, written as rows x columns. */
+    static int rows(String size) {
+        return Integer.parseInt(size.substring(0, size.indexOf('x')));
+    }
+
+    /** Return the number of columns in size, written as rows x columns. */
+    static int columns(String size) {
+        return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+    }
+
+    /** Dig a find cavern, with its retries until the orb is far enough away. */
+    @Benchmark
+    public Cavern digFindCavern() {
+        return Cavern.digFindCavern(rows, cols, new Random(SEED));
+    }
+
+    /** Dig a flee cavern, with gold and edge weights, open under the orb of find. */
+    @Benchmark
+    public Cavern digFleeCavern() {
+        var orbTile= find.getTarget().getTile();
+        return Cavern.digFindCavern(rows, cols, orbTile.getRow(), orbTile.getColumn(),
+            new Random(SEED));
+    }
+
+    /** Find the length of a shortest way out of the flee cavern, as the engine does <br>
+     * to give the finder its flee steps. */
+    @Benchmark
+    public int minPathLengthToTarget() {
+        return flee.minPathLengthToTarget(fleeStart);
+    }
+
+    @Benchmark
+    public List<String> serialize() {
+        return flee.serialize();
+    }
+
+    @Benchmark
+    public Cavern deserialize() {
+        return Cavern.deserialize(serialized);
+    }
+}
@@ -0,0 +1,72 @@
+package graph;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import algorithm.Pollack;
+
+/** Benchmarks of the engine side of the hunt phase: the calls a finder makes into <br>
+ * GameState on every step. The game is never run; the finder stands at the entrance <br>
+ * of a find cavern generated from a fixed seed. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations= 3, time= 2)
+@Measurement(iterations= 5, time= 2)
+@Fork(value= 1, jvmArgsAppend= "-Xmx3g")
+@State(Scope.Thread)
+public class GameStateBenchmark {
+    /** Size of the caverns, as rows x columns */
+    @Param({ "8x12", "25x40", "200x200", "1000x1000" })
+    public String size;
+
+    private GameState state;
+    /** Id of the entrance, and of a neighbor of it */
+    private long home;
+    private long away;
+    /** Buffers for neighbors(long[], int[]) */
+    private final long[] ids= new long[FindState.MAX_NEIGHBORS];
+    private final int[] dists= new int[FindState.MAX_NEIGHBORS];
+
+    @Setup
+    public void setUp() {
+        var caverns= GameCaverns.generate(CavernBenchmark.SEED, CavernBenchmark.rows(size),
+            CavernBenchmark.columns(size));
+        state= new GameState(caverns, false, new Pollack());
+        state.setQuiet();
+        home= state.currentLoc();
+        away= state.neighbors().iterator().next().getId();
+    }
+
+    @Benchmark
+    public Collection<NodeStatus> neighbors() {
+        return state.neighbors();
+    }
+
+    /** The allocation-free form of neighbors(); returns the number of neighbors. */
+    @Benchmark
+    public int neighborsIntoBuffers() {
+        return state.neighbors(ids, dists);
+    }
+
+    /** One step away from the entrance and one step back. */
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public long moveTo() {
+        state.moveTo(away);
+        state.moveTo(home);
+        return state.currentLoc();
+    }
+}
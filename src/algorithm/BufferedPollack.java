@@ -0,0 +1,61 @@
+package algorithm;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import graph.FindState;
+import graph.Finder;
+import graph.FleeState;
+
+/** Pollack's solution, written against the allocation-free parts of the finder API: <br>
+ * the find phase enumerates neighbors into reused buffers with <br>
+ * FindState.neighbors(long[], int[]), and the flee phase takes its whole path in one <br>
+ * FleeState.moveAlong call. It walks exactly the same route as Pollack, so it gets the <br>
+ * same scores; Pollack itself is left alone as the finder that the regression gate and <br>
+ * throughput harness baselines are measured with. */
+public class BufferedPollack extends Finder {
+
+    /** a HashSet contains all ID of the tiles that has been visited */
+    private HashSet<Long> visited;
+
+    /** Neighbor ids at each depth of dfsWalk, reused so that a step creates no lists */
+    private List<long[]> neighborIds;
+    /** Their distances to the orb, which dfsWalk does not use */
+    private int[] distances;
+
+    @Override
+    public void find(FindState state) {
+        visited= new HashSet<Long>();
+        neighborIds= new ArrayList<>();
+        distances= new int[FindState.MAX_NEIGHBORS];
+        dfsWalk(state, 0);
+    }
+
+    /** Take the shortest path to the exit in one FleeState.moveAlong call. */
+    @Override
+    public void flee(FleeState state) {
+        state.moveAlong(Path.shortestPath(state.currentNode(), state.exit()));
+    }
+
+    /** Walk depth-first from the current location, depth steps from the entrance, <br>
+     * until the orb is reached. */
+    private void dfsWalk(FindState state, int depth) {
+        if (state.distanceToOrb() == 0) return;
+        long id= state.currentLoc();
+        visited.add(id);
+        if (depth == neighborIds.size()) neighborIds.add(new long[FindState.MAX_NEIGHBORS]);
+        long[] ids= neighborIds.get(depth);
+        int n= state.neighbors(ids, distances);
+        for (int i= 0; i < n; i++ ) {
+            long wid= ids[i];
+            if (!visited.contains(wid)) {
+                state.moveTo(wid);
+                dfsWalk(state, depth + 1);
+                if (state.distanceToOrb() == 0) return;
+                state.moveTo(id);
+            }
+        }
+    }
+
+}
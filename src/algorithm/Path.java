@@ -6,6 +6,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import graph.Edge;
+import graph.GameEvents;
 import graph.Node;
 
 /** This class contains the solution to A7, shortest-path algorithm, <br>
@@ -19,6 +20,8 @@ public class Path {
         // Contains an entry for each node in the frontier set. The priority of
         // a node is the length of the shortest known path from v to the node
         // using only settled nodes except for the last node, which is in F.
+        var event= new GameEvents.ShortestPath();
+        event.begin();
         var F= new Heap<Node>(true);
 
         // Contains an entry for each node in the frontier and settled sets, giving
@@ -32,7 +35,10 @@ public class Path {
         // . . .The def of SandF given above
         while (F.size() != 0) {
             var f= F.poll();
-            if (f == end) return pathToEnd(SandF, end);
+            if (f == end) {
+                event.finish("Path.shortestPath", SandF.get(end).dist);
+                return pathToEnd(SandF, end);
+            }
 
             var fInfo= SandF.get(f);
             for (Edge e : f.exits()) {
@@ -53,6 +59,7 @@ public class Path {
         }
 
         // no path from v to end. Do not change this
+        event.finish("Path.shortestPath", -1);
         return new LinkedList<>();
     }
 
@@ -0,0 +1,67 @@
+package graph;
+
+/** The latency histograms of the finder API of one game, or merged over many games. <br>
+ * Think time is the time the finder spends between consecutive calls into the state <br>
+ * (from the start of a phase to its first call, and from its last call to its end, too); <br>
+ * engine time is the time the engine spends inside neighbors(), moveTo() and <br>
+ * moveAlong(), a whole path counting as one call of moveAlong(). <br>
+ * Comparing them tells a slow finder apart from engine overhead. */
+public final class ApiLatencies {
+    final LatencyHistogram huntThink= new LatencyHistogram();
+    final LatencyHistogram fleeThink= new LatencyHistogram();
+    final LatencyHistogram neighbors= new LatencyHistogram();
+    final LatencyHistogram findMove= new LatencyHistogram();
+    final LatencyHistogram fleeMove= new LatencyHistogram();
+    final LatencyHistogram moveAlong= new LatencyHistogram();
+
+    /** Return the finder's think time in the hunt phase. */
+    public LatencyHistogram getHuntThink() {
+        return huntThink;
+    }
+
+    /** Return the finder's think time in the flee phase. */
+    public LatencyHistogram getFleeThink() {
+        return fleeThink;
+    }
+
+    /** Return the engine time of neighbors(). */
+    public LatencyHistogram getNeighbors() {
+        return neighbors;
+    }
+
+    /** Return the engine time of moveTo(long), in the hunt phase. */
+    public LatencyHistogram getFindMove() {
+        return findMove;
+    }
+
+    /** Return the engine time of moveTo(Node), in the flee phase. */
+    public LatencyHistogram getFleeMove() {
+        return fleeMove;
+    }
+
+    /** Return the engine time of moveAlong(List), in the flee phase. */
+    public LatencyHistogram getMoveAlong() {
+        return moveAlong;
+    }
+
+    /** Add all the latencies of l to this one. */
+    public void add(ApiLatencies l) {
+        huntThink.add(l.huntThink);
+        fleeThink.add(l.fleeThink);
+        neighbors.add(l.neighbors);
+        findMove.add(l.findMove);
+        fleeMove.add(l.fleeMove);
+        moveAlong.add(l.moveAlong);
+    }
+
+    /** Print one line per histogram, times in microseconds. */
+    public void print() {
+        GameState.outPrintln("Latencies (us)");
+        GameState.outPrintln("  hunt think      : " + huntThink);
+        GameState.outPrintln("  neighbors()     : " + neighbors);
+        GameState.outPrintln("  moveTo(long)    : " + findMove);
+        GameState.outPrintln("  flee think      : " + fleeThink);
+        GameState.outPrintln("  moveTo(Node)    : " + fleeMove);
+        GameState.outPrintln("  moveAlong(List) : " + moveAlong);
+    }
+}
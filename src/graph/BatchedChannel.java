@@ -0,0 +1,59 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/** A channel that collects what is written to it in a buffer and passes it on to <br>
+ * another channel only when the buffer is full or on flush(), so that many small <br>
+ * writes, such as one MoveTrace per game, cost one system call per batch. <br>
+ * Closing it flushes it but leaves the other channel open. Not thread-safe. */
+/* package */ final class BatchedChannel implements WritableByteChannel {
+    /** Bytes collected before they are passed on */
+    static final int DEFAULT_CAPACITY= 1 << 16;
+
+    private final WritableByteChannel out;
+    private final ByteBuffer buffer;
+    private boolean open= true;
+
+    /** Constructor: a channel to out that passes bytes on in batches of capacity bytes. */
+    BatchedChannel(WritableByteChannel out, int capacity) {
+        this.out= out;
+        buffer= ByteBuffer.allocate(capacity);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        var n= src.remaining();
+        if (n > buffer.remaining()) flush();
+        if (n > buffer.capacity()) {
+            // Larger than the whole buffer: pass it on as it is
+            while (src.hasRemaining()) {
+                out.write(src);
+            }
+        } else {
+            buffer.put(src);
+        }
+        return n;
+    }
+
+    /** Pass every byte collected on to the other channel. */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (open) flush();
+        open= false;
+    }
+}
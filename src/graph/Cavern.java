@@ -102,6 +102,16 @@ public class Cavern {
 
 	private final Node[][] tiles;
 
+	/** Distance along the grid of every tile to the target, indexed by row * cols + column <br>
+	 * (null until it is first needed) */
+	private volatile int[] targetDistances;
+
+	/** The int-handle view of the graph (null until it is first needed) */
+	private volatile IndexedGraph indexedGraph;
+
+	/** Number of caverns dug to get this one (more than 1 if earlier ones were rejected) */
+	private int generationAttempts= 1;
+
 	/** Return a new random cavern of the given size where there is no gold, <br>
 	 * all edges have weight 1, and there is an orb a reasonable distance from the exit.
 	 *
@@ -112,9 +122,12 @@ public class Cavern {
 		int minOrbDist= minOrbDistance(rows, cols);
 
 		Cavern cavern= new Cavern(rows, cols, rand, () -> 1, () -> 0, Tile.Type.ORB);
+		int attempts= 1;
 		while (cavern.minPathLengthToTarget(cavern.getEntrance()) < minOrbDist) {
 			cavern= new Cavern(rows, cols, rand, () -> 1, () -> 0, Tile.Type.ORB);
+			attempts++ ;
 		}
+		cavern.generationAttempts= attempts;
 		return cavern;
 	}
 
@@ -137,10 +150,13 @@ public class Cavern {
 		Supplier<Integer> goldGen= () -> Cavern.generateGoldValue(rand);
 		Cavern potentialCavern= new Cavern(rows, cols, rand, edgeWeightGen, goldGen,
 			Tile.Type.ENTRANCE);
+		int attempts= 1;
 		while (potentialCavern.getTileAt(currentRow, currentCol).getType() != Tile.Type.FLOOR) {
 			potentialCavern= new Cavern(rows, cols, rand, edgeWeightGen, goldGen,
 				Tile.Type.ENTRANCE);
+			attempts++ ;
 		}
+		potentialCavern.generationAttempts= attempts;
 		return potentialCavern;
 	}
 
@@ -329,6 +345,29 @@ public class Cavern {
 		return graph.size();
 	}
 
+	/** Return the number of caverns that were dug to generate this one: <br>
+	 * 1 plus the number that were rejected. */
+	public int getGenerationAttempts() {
+		return generationAttempts;
+	}
+
+	/** Return an estimate of the memory this cavern retains, broken down by component <br>
+	 * (see CavernFootprint). It walks every node, so it is not free on large caverns. */
+	public CavernFootprint footprint() {
+		return CavernFootprint.of(this);
+	}
+
+	/** Return a view of the graph with int handles and primitive adjacency arrays. <br>
+	 * It is built on the first call, in time linear in the size of the graph. */
+	public IndexedGraph indexedGraph() {
+		IndexedGraph g= indexedGraph;
+		if (g == null) {
+			g= new IndexedGraph(graph);
+			indexedGraph= g;
+		}
+		return g;
+	}
+
 	/** Return the number of rows in the grid. */
 	public int getRowCount() {
 		return rows;
@@ -367,11 +406,89 @@ public class Cavern {
 		return tiles[r][c];
 	}
 
+	/** Return the distance along the grid (NOT the graph) from n's tile to the target: <br>
+	 * the number of rows plus the number of columns between them. <br>
+	 * The distances of all tiles are computed once, on the first call. <br>
+	 * Precondition: n is a node of this cavern. */
+	public int gridDistanceToTarget(Node n) {
+		int[] d= targetDistances;
+		if (d == null) {
+			d= computeTargetDistances();
+			targetDistances= d;
+		}
+		Tile t= n.getTile();
+		return d[t.getRow() * cols + t.getColumn()];
+	}
+
+	/** Return the distance along the grid from every tile to the target, <br>
+	 * indexed by row * cols + column. */
+	private int[] computeTargetDistances() {
+		Tile t= target.getTile();
+		int[] d= new int[rows * cols];
+		for (int i= 0; i < rows; i++ ) {
+			for (int j= 0; j < cols; j++ ) {
+				d[i * cols + j]= Math.abs(i - t.getRow()) + Math.abs(j - t.getColumn());
+			}
+		}
+		return d;
+	}
+
+	/** Return a hash of the layout of this cavern: the type and original gold of every <br>
+	 * tile and the lengths of its edges, in grid order, and the target. Caverns generated <br>
+	 * from the same seed have the same fingerprint, whatever gold has been picked up. */
+	public long fingerprint() {
+		long h= 31 * rows + cols;
+		for (int i= 0; i < rows; i++ ) {
+			for (int j= 0; j < cols; j++ ) {
+				Tile t= tiles[i][j].getTile();
+				h= 31 * h + t.getType().ordinal();
+				h= 31 * h + t.getOriginalGold();
+				for (Edge e : tiles[i][j].exits()) {
+					h= 31 * h + e.length();
+				}
+			}
+		}
+		return 31 * h + target.getId();
+	}
+
+	/** Return a copy of this cavern whose open tiles, nodes and edges are all new and <br>
+	 * have all their gold, so that gold can be picked up in the copy without affecting <br>
+	 * this cavern. Wall nodes, which never change, are shared with this cavern. <br>
+	 * This takes time linear in the size of the cavern and uses no randomness. */
+	public Cavern copy() {
+		Map<Node, Node> isomorphism= new HashMap<>();
+		Node[][] t= new Node[rows][cols];
+		for (Node n : graph) {
+			Tile tile= n.getTile();
+			Node m= new Node(n.getId(), new Tile(tile.getRow(), tile.getColumn(),
+				tile.getOriginalGold(), tile.getType()));
+			isomorphism.put(n, m);
+			t[tile.getRow()][tile.getColumn()]= m;
+		}
+		for (Node n : graph) {
+			Node m= isomorphism.get(n);
+			for (Edge e : n.exits()) {
+				m.addEdge(new Edge(e, isomorphism));
+			}
+		}
+
+		for (int i= 0; i < rows; i++ ) {
+			for (int j= 0; j < cols; j++ ) {
+				if (t[i][j] == null) {
+					t[i][j]= tiles[i][j];
+				}
+			}
+		}
+		return new Cavern(new HashSet<>(isomorphism.values()), t, isomorphism.get(target));
+	}
+
 	/** Package-private implementation of Dijkstra's algorithm that <br>
 	 * returns only the minimum distance between the given node and the <br>
 	 * target node for this cavern (no path). <br>
 	 * Precondition: start must be a node in the graph of this cavern. */
 	int minPathLengthToTarget(Node start) {
+		GameEvents.ShortestPath event= new GameEvents.ShortestPath();
+		event.begin();
 		Map<Long, Integer> pathWeights= new HashMap<>();
 		InternalMinHeap<Node> heap= new InternalMinHeap<>();
 
@@ -379,7 +496,11 @@ public class Cavern {
 		heap.add(start, 0);
 		while (!heap.isEmpty()) {
 			Node n= heap.poll();
-			if (n.equals(target)) { return pathWeights.get(n.getId()); }
+			if (n.equals(target)) {
+				int length= pathWeights.get(n.getId());
+				event.finish("Cavern.minPathLengthToTarget", length);
+				return length;
+			}
 
 			int nWeight= pathWeights.get(n.getId());
 
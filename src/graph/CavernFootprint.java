@@ -0,0 +1,198 @@
+package graph;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+/** An estimate of the memory a Cavern retains, by component. It is computed by walking <br>
+ * the cavern and adding up object sizes, without an agent: the size of an object is <br>
+ * its header plus its instance fields (found by reflection), rounded up to the object <br>
+ * alignment, with header, reference size and alignment read from the running JVM. <br>
+ * Hash tables are assumed to have the capacity java.util gives them for their size. <br>
+ * The estimate ignores field padding and the iterator views that sets create lazily, <br>
+ * so it is typically within a few percent of what a heap dump shows. */
+public final class CavernFootprint {
+    /** Size of an object header, of a reference and the object alignment, in bytes */
+    private static final int HEADER;
+    private static final int REFERENCE;
+    private static final int ALIGNMENT;
+
+    static {
+        var compressedOops= true;
+        var compressedClasses= true;
+        var alignment= 8;
+        try {
+            var hotSpot= ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            compressedOops= Boolean.parseBoolean(
+                hotSpot.getVMOption("UseCompressedOops").getValue());
+            compressedClasses= Boolean.parseBoolean(
+                hotSpot.getVMOption("UseCompressedClassPointers").getValue());
+            alignment= Integer.parseInt(
+                hotSpot.getVMOption("ObjectAlignmentInBytes").getValue());
+        } catch (RuntimeException e) {
+            // Not HotSpot: assume its defaults for heaps below 32 GB
+        }
+        HEADER= compressedClasses ? 12 : 16;
+        REFERENCE= compressedOops ? 4 : 8;
+        ALIGNMENT= alignment;
+    }
+
+    /** Sizes of the classes measured so far, by class */
+    private static final Map<Class<?>, Long> SIZES= new ConcurrentHashMap<>();
+
+    private long nodes;
+    private long tiles;
+    private long edges;
+    private long linkedSets;
+    private long wrappers;
+    private long graphSet;
+    private long grid;
+
+    private CavernFootprint() {}
+
+    /** Return the estimated footprint of cavern c. */
+    static CavernFootprint of(Cavern c) {
+        var f= new CavernFootprint();
+        var wrapper= sizeOf(JdkClasses.UNMODIFIABLE_SET);
+        for (var i= 0; i < c.getRowCount(); i++ ) {
+            for (var j= 0; j < c.getColumnCount(); j++ ) {
+                var n= c.getNodeAt(i, j);
+                f.nodes+= sizeOf(Node.class) + 2 * array(Node.MAX_DEGREE);
+                f.tiles+= sizeOf(Tile.class);
+                f.edges+= n.exits().size() * sizeOf(Edge.class);
+                f.linkedSets+= linkedHashSet(n.exits().size()) +
+                    linkedHashSet(n.getNeighbors().size());
+                f.wrappers+= 2 * wrapper;
+            }
+            f.grid+= array(c.getColumnCount());
+        }
+        f.grid+= array(c.getRowCount()) + sizeOf(Cavern.class);
+        f.graphSet= hashSet(c.getGraph().size());
+        f.wrappers+= wrapper;
+        return f;
+    }
+
+    /** The JDK classes whose sizes are needed, looked up by name since they are private. */
+    private static final class JdkClasses {
+        private static final Class<?> UNMODIFIABLE_SET=
+            load("java.util.Collections$UnmodifiableSet");
+        private static final Class<?> HASH_ENTRY= load("java.util.HashMap$Node");
+        private static final Class<?> LINKED_ENTRY= load("java.util.LinkedHashMap$Entry");
+
+        /** Return the class called name. */
+        private static Class<?> load(String name) {
+            try {
+                return Class.forName(name);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("This JVM has no " + name, e);
+            }
+        }
+    }
+
+    /** Return the size of a LinkedHashSet created empty that holds n elements. */
+    private static long linkedHashSet(int n) {
+        var size= sizeOf(java.util.LinkedHashSet.class) + sizeOf(java.util.LinkedHashMap.class);
+        if (n == 0) return size;
+        var capacity= 16;
+        while (n > capacity * 3 / 4) capacity*= 2;
+        return size + array(capacity) + n * sizeOf(JdkClasses.LINKED_ENTRY);
+    }
+
+    /** Return the size of a HashSet of n elements made by copying a collection. */
+    private static long hashSet(int n) {
+        var capacity= Integer.highestOneBit(Math.max((int) (n / 0.75f) + 1, 16) - 1) << 1;
+        return sizeOf(java.util.HashSet.class) + sizeOf(java.util.HashMap.class) +
+            array(capacity) + n * sizeOf(JdkClasses.HASH_ENTRY);
+    }
+
+    /** Return the size of an array of n references. */
+    private static long array(int n) {
+        return align(HEADER + 4 + (long) n * REFERENCE);
+    }
+
+    /** Return the size of an instance of c. */
+    private static long sizeOf(Class<?> c) {
+        return SIZES.computeIfAbsent(c, (k) -> {
+            long size= HEADER;
+            for (Class<?> k2= k; k2 != null; k2= k2.getSuperclass()) {
+                for (Field fld : k2.getDeclaredFields()) {
+                    if (!Modifier.isStatic(fld.getModifiers())) size+= fieldSize(fld.getType());
+                }
+            }
+            return align(size);
+        });
+    }
+
+    /** Return the size of a field of type t. */
+    private static int fieldSize(Class<?> t) {
+        if (!t.isPrimitive()) return REFERENCE;
+        if (t == long.class || t == double.class) return 8;
+        if (t == int.class || t == float.class) return 4;
+        if (t == short.class || t == char.class) return 2;
+        return 1;
+    }
+
+    /** Return size rounded up to the object alignment. */
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /** Return the bytes of the Node objects, with their arrays of edges. */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /** Return the bytes of the Tile objects. */
+    public long getTiles() {
+        return tiles;
+    }
+
+    /** Return the bytes of the Edge objects. */
+    public long getEdges() {
+        return edges;
+    }
+
+    /** Return the bytes of the LinkedHashSets of edges and neighbors of every node, <br>
+     * with their maps, tables and entries. */
+    public long getLinkedSets() {
+        return linkedSets;
+    }
+
+    /** Return the bytes of the unmodifiable wrappers of those sets and of the graph. */
+    public long getWrappers() {
+        return wrappers;
+    }
+
+    /** Return the bytes of the HashSet of the graph's nodes. */
+    public long getGraphSet() {
+        return graphSet;
+    }
+
+    /** Return the bytes of the Node[][] grid and the Cavern itself. */
+    public long getGrid() {
+        return grid;
+    }
+
+    /** Return the estimated bytes retained by the cavern. */
+    public long getTotal() {
+        return nodes + tiles + edges + linkedSets + wrappers + graphSet + grid;
+    }
+
+    /** Return one line per component, with its bytes and share of the total. */
+    @Override
+    public String toString() {
+        var total= (double) Math.max(getTotal(), 1);
+        return String.format("Nodes        %,12d  %5.1f%%%n", nodes, 100 * nodes / total) +
+            String.format("Tiles        %,12d  %5.1f%%%n", tiles, 100 * tiles / total) +
+            String.format("Edges        %,12d  %5.1f%%%n", edges, 100 * edges / total) +
+            String.format("Linked sets  %,12d  %5.1f%%%n", linkedSets, 100 * linkedSets / total) +
+            String.format("Wrappers     %,12d  %5.1f%%%n", wrappers, 100 * wrappers / total) +
+            String.format("Graph set    %,12d  %5.1f%%%n", graphSet, 100 * graphSet / total) +
+            String.format("Grid         %,12d  %5.1f%%%n", grid, 100 * grid / total) +
+            String.format("Total        %,12d", getTotal());
+    }
+}
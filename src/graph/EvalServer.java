@@ -0,0 +1,289 @@
+package graph;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+import algorithm.Pollack;
+
+/** A resident evaluation service. It listens on a loopback port and plays games for <br>
+ * any finder it is sent, on a JVM that stays warm between requests, so a batch costs <br>
+ * the time of its games instead of JVM startup, class loading and JIT warmup. <br>
+ * <br>
+ * A request runs the code it names in this JVM, so only a client that knows the <br>
+ * server's token may send one: the server makes a new random token when it starts <br>
+ * and writes it to a file that only its owner can read (see main). A client first <br>
+ * sends the token: <br>
+ * .. TOKEN token <br>
+ * and the server closes the connection if it is wrong. The client then sends one <br>
+ * request per line, and may send several on one connection: <br>
+ * .. RUN finderClass classpath seed seed ... <br>
+ * where classpath lists the jars or class directories holding the finder, separated <br>
+ * by File.pathSeparator, or is - to use the server's own classpath. Each request gets <br>
+ * a fresh class loader that looks on classpath first and takes only the engine <br>
+ * (package graph) and the JDK (java.*) from the server, so a finder class that the <br>
+ * server also has is run as submitted. Finders of different requests are isolated <br>
+ * from each other, and their classes are unloaded afterwards. With classpath -, the <br>
+ * finder is the server's own class and is not isolated: its static state is shared <br>
+ * with every other request that uses -. <br>
+ * The server answers with one line per game, in seed order, as soon as it is known: <br>
+ * .. GAME seed score gold bonus hunt flee <br>
+ * where hunt and flee are each OK, FAILED, TIMEOUT or ERROR, and then <br>
+ * .. DONE games averageScore elapsedMillis <br>
+ * or, if the request cannot be run at all, ERROR message. QUIT closes the connection. */
+public class EvalServer {
+
+    /** The port used when none is given */
+    public static final int DEFAULT_PORT= 7380;
+
+    /** Number of games of one request played at the same time */
+    private final int threads;
+
+    private final ServerSocket socket;
+
+    /** The token a client must send before its requests, in hexadecimal */
+    private final String token;
+
+    /** Thrown when a finder cannot be constructed. */
+    @SuppressWarnings("serial")
+    private static class FinderCreationException extends RuntimeException {
+        private FinderCreationException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    /** Constructor: a server on the loopback port port (0 for any free port) <br>
+     * that plays the games of a request on nThreads threads, with a new random token. */
+    public EvalServer(int port, int nThreads) throws IOException {
+        threads= nThreads;
+        var bytes= new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        token= HexFormat.of().formatHex(bytes);
+        socket= new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /** Write this server's token to file, replacing it, readable and writable only by <br>
+     * its owner where the file system supports POSIX permissions. */
+    public void writeToken(Path file) throws IOException {
+        Files.deleteIfExists(file);
+        try {
+            var ownerOnly= PosixFilePermissions.fromString("rw-------");
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(ownerOnly));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(file);
+            var f= file.toFile();
+            f.setReadable(false, false);
+            f.setWritable(false, false);
+            f.setReadable(true, true);
+            f.setWritable(true, true);
+        }
+        Files.writeString(file, token + System.lineSeparator(), StandardCharsets.UTF_8);
+    }
+
+    /** Return the port this server listens on. */
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
+    /** Play the reference finder on games seeds, so that the engine's hot paths are <br>
+     * compiled before the first request arrives. */
+    public void warmUp(int games) throws InterruptedException {
+        new GameRunner(threads, Pollack::new).run(GameRunner.seeds(0, games));
+    }
+
+    /** Accept connections until the server socket is closed, serving each connection <br>
+     * on its own thread. */
+    public void serve() throws IOException {
+        while (!socket.isClosed()) {
+            Socket client= socket.accept();
+            var t= new Thread(() -> handle(client), "eval-" + client.getPort());
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /** Answer the requests sent on connection client until it sends QUIT or closes. */
+    private void handle(Socket client) {
+        try (client;
+            var in= new BufferedReader(
+                new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+            var out= new PrintWriter(client.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            var first= in.readLine();
+            if (first == null || !tokenMatches(first.trim())) {
+                out.println("ERROR expected TOKEN token");
+                return;
+            }
+            String line;
+            while ((line= in.readLine()) != null) {
+                String[] words= line.trim().split("\\s+");
+                if (words[0].equals("QUIT")) return;
+                if (words[0].equals("RUN") && words.length >= 3) {
+                    runRequest(words, out);
+                } else if (!words[0].isEmpty()) {
+                    out.println("ERROR expected RUN finderClass classpath seed... or QUIT");
+                }
+            }
+        } catch (IOException e) {
+            // The client went away; nothing left to answer.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Return true iff line is TOKEN followed by this server's token. */
+    private boolean tokenMatches(String line) {
+        if (!line.startsWith("TOKEN ")) return false;
+        var sent= line.substring("TOKEN ".length()).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(sent, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Run the request words = RUN finderClass classpath seed... and write the answer to out. */
+    private void runRequest(String[] words, PrintWriter out) throws InterruptedException {
+        long[] seeds;
+        try {
+            seeds= Arrays.stream(words, 3, words.length).mapToLong(Long::parseLong).toArray();
+        } catch (NumberFormatException e) {
+            out.println("ERROR seeds must be numbers");
+            return;
+        }
+        if (seeds.length == 0) {
+            out.println("ERROR no seeds given");
+            return;
+        }
+
+        var start= System.nanoTime();
+        try (var loader= newLoader(words[2])) {
+            var finderClass= Class.forName(words[1], true, loader);
+            if (!words[2].equals("-") && finderClass.getClassLoader() != loader) {
+                out.println("ERROR finder " + words[1] + " is not on " + words[2]);
+                return;
+            }
+            Constructor<? extends Finder> ctor= finderClass.asSubclass(Finder.class)
+                .getDeclaredConstructor();
+            ctor.setAccessible(true);
+            var df= new DecimalFormat("#.##");
+            var totalScore= new long[1];
+            new GameRunner(threads, () -> newFinder(ctor)).run(seeds, (r) -> {
+                totalScore[0]+= r.getScore();
+                out.println("GAME " + r.getSeed() + " " + r.getScore() + " " + r.getGold() +
+                    " " + df.format(r.getBonus()) + " " +
+                    outcome(r.huntSucceeded(), r.huntTimedOut(), r.huntErrored()) + " " +
+                    outcome(r.fleeSucceeded(), r.fleeTimedOut(), r.fleeErrored()));
+            });
+            out.println("DONE " + seeds.length + " " + totalScore[0] / seeds.length + " " +
+                (System.nanoTime() - start) / 1_000_000);
+        } catch (ReflectiveOperationException | ClassCastException | IOException e) {
+            out.println("ERROR cannot load finder " + words[1] + ": " + e);
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof FinderCreationException) {
+                out.println("ERROR cannot create finder " + words[1] + ": " +
+                    e.getCause().getCause());
+            } else {
+                out.println("ERROR " + e.getMessage() + ": " + e.getCause());
+            }
+        }
+    }
+
+    /** A class loader that looks for a class on its own URLs before asking its parent, <br>
+     * except for the classes of the engine and of java.*, which always come from the <br>
+     * parent so that the finder and the engine agree on Finder, FindState and so on. <br>
+     * ShardWorker loads its finder with it, too. */
+    /* package */ static final class ChildFirstLoader extends URLClassLoader {
+        static {
+            ClassLoader.registerAsParallelCapable();
+        }
+
+        private ChildFirstLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith("java.") || name.startsWith("graph.")) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                var c= findLoadedClass(name);
+                if (c == null) {
+                    try {
+                        c= findClass(name);
+                    } catch (ClassNotFoundException e) {
+                        return super.loadClass(name, resolve);
+                    }
+                }
+                if (resolve) resolveClass(c);
+                return c;
+            }
+        }
+    }
+
+    /** Return a new class loader for the jars and directories in classpath, <br>
+     * or for no extra classes at all if classpath is -. */
+    /* package */ static URLClassLoader newLoader(String classpath) throws IOException {
+        List<URL> urls= new ArrayList<>();
+        if (!classpath.equals("-")) {
+            for (String entry : classpath.split(File.pathSeparator)) {
+                urls.add(Paths.get(entry).toUri().toURL());
+            }
+        }
+        return new ChildFirstLoader(urls.toArray(new URL[0]), GameState.class.getClassLoader());
+    }
+
+    /** Return a new finder made by ctor. Throw a FinderCreationException if ctor throws. */
+    /* package */ static Finder newFinder(Constructor<? extends Finder> ctor) {
+        try {
+            return ctor.newInstance();
+        } catch (InvocationTargetException e) {
+            throw new FinderCreationException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new FinderCreationException(e);
+        }
+    }
+
+    /** Return the word describing a phase that succeeded, timed out or errored. */
+    private static String outcome(boolean succeeded, boolean timedOut, boolean errored) {
+        if (succeeded) return "OK";
+        if (timedOut) return "TIMEOUT";
+        if (errored) return "ERROR";
+        return "FAILED";
+    }
+
+    /** Start a server. Options: -p port (default DEFAULT_PORT), <br>
+     * -t threads per request (default one per core), -w games to warm up with, <br>
+     * -k file to write the token to (default .evalserver-token in the home directory). */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> argList= Arrays.asList(args);
+        var port= Options.intValue(argList, "-p", DEFAULT_PORT);
+        var threads= Options.intValue(argList, "-t", Runtime.getRuntime().availableProcessors());
+        var server= new EvalServer(port, Math.max(threads, 1));
+        var tokenFile= Paths.get(Options.value(argList, "-k",
+            Paths.get(System.getProperty("user.home"), ".evalserver-token").toString()));
+        server.writeToken(tokenFile);
+        var warmUpGames= Options.intValue(argList, "-w", 0);
+        if (warmUpGames > 0) server.warmUp(warmUpGames);
+        System.out.println("Evaluation server listening on port " + server.getPort() +
+            ", token in " + tokenFile);
+        server.serve();
+    }
+}
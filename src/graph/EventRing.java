@@ -0,0 +1,192 @@
+package graph;
+
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/** A ring buffer through which one thread, the finder's, publishes the events of a game <br>
+ * (moves, steps left, gold, bonus) to observers such as the GUI, each of which handles <br>
+ * them on its own thread, in batches, in the style of the LMAX Disruptor. <br>
+ * An event is three array stores and an ordered store of its sequence number. <br>
+ * The publisher waits only for observers that throttle it, such as the GUI: before it <br>
+ * overwrites an event one of them has not handled, it waits until it has. Any other <br>
+ * observer that falls more than the capacity behind loses the events that were <br>
+ * overwritten, and is told how many. */
+public final class EventRing {
+    /** Kinds of event. MOVE: the finder moved to node. STEPS_LEFT: value steps are left. <br>
+     * GOLD: value is the gold collected in its high 32 bits and the score in its low <br>
+     * 32 bits. BONUS: value is the bonus multiplier as Double.doubleToRawLongBits. */
+    public static final int MOVE= 0;
+    public static final int STEPS_LEFT= 1;
+    public static final int GOLD= 2;
+    public static final int BONUS= 3;
+
+    /** Default number of events the ring holds */
+    public static final int DEFAULT_CAPACITY= 1 << 16;
+
+    /** How long an observer with nothing to do sleeps before looking again, in ns */
+    private static final long IDLE_NANOS= TimeUnit.MICROSECONDS.toNanos(200);
+
+    /** Handles the events of a ring, on a thread of its own. */
+    public interface Observer {
+        /** Handle an event of kind kind about node (null unless MOVE) with value value. */
+        void onEvent(int kind, Node node, long value);
+
+        /** Called after each batch of events, such as to repaint once per batch. */
+        default void endOfBatch() {}
+
+        /** Called when count events were overwritten before this observer handled them. */
+        default void onLost(long count) {}
+
+        /** Return true if the publisher should wait for this observer rather than <br>
+         * overwrite events it has not handled yet, so that it never loses any. */
+        default boolean throttles() {
+            return false;
+        }
+    }
+
+    /** The events, at index sequence & mask */
+    private final int mask;
+    private final int[] kinds;
+    private final Node[] nodes;
+    private final long[] values;
+
+    /** Sequence number of the next event (read and written only by the publisher) */
+    private long next;
+    /** Sequence number of the event being written, set before its slot is overwritten */
+    private final AtomicLong claimed= new AtomicLong(-1);
+    /** Sequence number of the last event completely written */
+    private final AtomicLong published= new AtomicLong(-1);
+    /** Sequence number up to which the publisher knows that every throttling observer <br>
+     * has handled the events (read and written only by the publisher) */
+    private long gate= -1;
+
+    private final List<Consumer> consumers= new CopyOnWriteArrayList<>();
+
+    /** An observer with its thread and the sequence number of the last event it handled */
+    private final class Consumer implements Runnable {
+        private final Observer observer;
+        private final boolean throttles;
+        private final AtomicLong done= new AtomicLong(-1);
+        private volatile boolean closed;
+
+        private Consumer(Observer o) {
+            observer= o;
+            throttles= o.throttles();
+        }
+
+        /** Handle events until the ring is closed and they are all handled. <br>
+         * However this ends, done is then set past every event, so that neither the <br>
+         * publisher nor awaitDrained() waits for this consumer any more. */
+        @Override
+        public void run() {
+            try {
+                consume();
+            } finally {
+                done.set(Long.MAX_VALUE);
+            }
+        }
+
+        private void consume() {
+            while (true) {
+                var end= published.get();
+                var seq= done.get() + 1;
+                if (seq > end) {
+                    // Events published before close() are visible once closed is
+                    if (closed && published.get() < seq) return;
+                    if (!closed) LockSupport.parkNanos(IDLE_NANOS);
+                    continue;
+                }
+                if (end - seq >= kinds.length) {
+                    observer.onLost(end - kinds.length + 1 - seq);
+                    seq= end - kinds.length + 1;
+                }
+                for (; seq <= end; seq++ ) {
+                    var i= (int) seq & mask;
+                    var kind= kinds[i];
+                    var node= nodes[i];
+                    var value= values[i];
+                    VarHandle.acquireFence();
+                    var overwritten= claimed.getOpaque() - kinds.length;
+                    if (overwritten >= seq) {
+                        // The publisher has overwritten this slot while it was read
+                        observer.onLost(overwritten - seq + 1);
+                        seq= overwritten;
+                        continue;
+                    }
+                    observer.onEvent(kind, node, value);
+                    if (throttles) done.set(seq);
+                }
+                observer.endOfBatch();
+                done.set(seq - 1);
+            }
+        }
+    }
+
+    /** Constructor: a ring of capacity events, rounded up to a power of 2. */
+    public EventRing(int capacity) {
+        var size= Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        mask= size - 1;
+        kinds= new int[size];
+        nodes= new Node[size];
+        values= new long[size];
+    }
+
+    /** Publish an event of kind kind about node with value value. <br>
+     * Must be called by only one thread. Returns at once unless a throttling observer <br>
+     * has not yet handled the event this one overwrites. */
+    public void publish(int kind, Node node, long value) {
+        var seq= next++ ;
+        if (seq - kinds.length > gate) awaitGate(seq - kinds.length);
+        var i= (int) seq & mask;
+        claimed.setOpaque(seq);
+        VarHandle.releaseFence();
+        kinds[i]= kind;
+        nodes[i]= node;
+        values[i]= value;
+        published.setRelease(seq);
+    }
+
+    /** Wait until every throttling observer has handled event wrap, and advance gate. <br>
+     * Without throttling observers, gate moves one capacity ahead, so that observers <br>
+     * added later are still looked for. */
+    private void awaitGate(long wrap) {
+        while (true) {
+            var min= wrap + kinds.length;
+            for (Consumer c : consumers) {
+                if (c.throttles) min= Math.min(min, c.done.get());
+            }
+            gate= min;
+            if (min >= wrap) return;
+            LockSupport.parkNanos(IDLE_NANOS);
+        }
+    }
+
+    /** Start a daemon thread called name that gives o every event published from now on. */
+    public void observe(Observer o, String name) {
+        var c= new Consumer(o);
+        c.done.set(published.get());
+        consumers.add(c);
+        var t= new Thread(c, name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Wait until every observer has handled every event published so far. */
+    public void awaitDrained() {
+        var end= published.get();
+        for (Consumer c : consumers) {
+            while (c.done.get() < end) LockSupport.parkNanos(IDLE_NANOS);
+        }
+    }
+
+    /** Let the observers' threads end once they have handled every event. */
+    public void close() {
+        for (Consumer c : consumers) {
+            c.closed= true;
+        }
+    }
+}
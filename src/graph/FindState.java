@@ -8,7 +8,11 @@ import java.util.Collection;
  *
  * An instance provides all the information necessary<br>
  * to search through the cavern and find the Orb. */
-public interface FindState {
+public interface FindState extends TimeBudget {
+
+	/** Most neighbors a location can have: the array length needed by <br>
+	 * neighbors(long[], int[]). */
+	int MAX_NEIGHBORS= 4;
 	/** Return the unique identifier associated with Pollack's current location. */
 	long currentLoc();
 
@@ -23,6 +27,25 @@ public interface FindState {
 	 * It is possible to move directly to any node identifier in this collection. */
 	Collection<NodeStatus> neighbors();
 
+	/** Like neighbors(), but without creating any objects, for finders that call it <br>
+	 * at every step: store the identifier of each direct neighbor of Pollack's current <br>
+	 * location in ids and its distance to the Orb along the grid in dists, at the same <br>
+	 * index from 0 on, and return the number of neighbors. <br>
+	 * Throw an IllegalArgumentException if ids or dists is shorter than MAX_NEIGHBORS. */
+	default int neighbors(long[] ids, int[] dists) {
+		if (ids.length < MAX_NEIGHBORS || dists.length < MAX_NEIGHBORS) {
+			throw new IllegalArgumentException("neighbors needs arrays of length " +
+				MAX_NEIGHBORS);
+		}
+		int count= 0;
+		for (NodeStatus ns : neighbors()) {
+			ids[count]= ns.getId();
+			dists[count]= ns.getDistanceToTarget();
+			count++ ;
+		}
+		return count;
+	}
+
 	/** Return Pollack's current distance along the grid (NOT THE GRAPH) from the Orb. */
 	int distanceToOrb();
 
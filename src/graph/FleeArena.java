@@ -0,0 +1,340 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import algorithm.Pollack;
+
+/** A game mode in which several finders flee through the same flee cavern at the same <br>
+ * time, each on its own thread, competing for its gold. All start where the orb was, <br>
+ * each with the steps a single finder would get, and each has GameState.SC_TIMEOUT <br>
+ * seconds. The cavern is shared and read without locks; the only writes to it are gold <br>
+ * pickups, which are atomic claims on the tiles (Tile.takeGold), so a nugget goes to <br>
+ * exactly one finder. Everything else an agent has, position, steps and gold, is its own. <br>
+ * main is the only entry point: an arena takes the package's GameCaverns. */
+public class FleeArena {
+
+    /** Thrown from a call into an agent's state once its time is up. */
+    @SuppressWarnings("serial")
+    private static class OutOfTimeException extends RuntimeException {}
+
+    /** Thrown when an agent's move takes more steps than it has left. */
+    @SuppressWarnings("serial")
+    private static class OutOfStepsException extends RuntimeException {}
+
+    /** What one finder did in an arena. */
+    public static final class AgentResult {
+        private final int gold;
+        private final int stepsUsed;
+        private final long moves;
+        /** Gold claims the agent lost to another agent that got there first */
+        private final long lostClaims;
+        private final boolean escaped;
+        private final boolean timedOut;
+        private final boolean errored;
+
+        private AgentResult(int gold, int stepsUsed, long moves, long lostClaims,
+            boolean escaped, boolean timedOut, boolean errored) {
+            this.gold= gold;
+            this.stepsUsed= stepsUsed;
+            this.moves= moves;
+            this.lostClaims= lostClaims;
+            this.escaped= escaped;
+            this.timedOut= timedOut;
+            this.errored= errored;
+        }
+
+        /** Return the gold the agent picked up. */
+        public int getGold() {
+            return gold;
+        }
+
+        /** Return the steps the agent used. */
+        public int getStepsUsed() {
+            return stepsUsed;
+        }
+
+        /** Return the number of moves the agent made. */
+        public long getMoves() {
+            return moves;
+        }
+
+        /** Return how many times the agent reached gold that another agent had just taken. */
+        public long getLostClaims() {
+            return lostClaims;
+        }
+
+        /** Return true iff the agent ended at the exit in time. */
+        public boolean escaped() {
+            return escaped;
+        }
+
+        /** Return true iff the agent ran out of time. */
+        public boolean timedOut() {
+            return timedOut;
+        }
+
+        /** Return true iff the agent's finder threw an exception or ran out of steps. */
+        public boolean errored() {
+            return errored;
+        }
+
+        @Override
+        public String toString() {
+            return "gold " + gold + ", steps " + stepsUsed + ", moves " + moves +
+                ", lost claims " + lostClaims + (escaped ? ", escaped" : "") +
+                (timedOut ? ", timed out" : "") + (errored ? ", errored" : "");
+        }
+    }
+
+    /** The flee state of one agent: the shared cavern, and its own position and steps. <br>
+     * What the agent has done is guarded by the agent, so that the arena can take a <br>
+     * snapshot of an agent whose thread is still running when its time is up. Taking it <br>
+     * closes the agent: from then on every call into it throws an OutOfTimeException, <br>
+     * so an agent that runs late claims no more gold in the shared cavern. */
+    private static final class Agent implements FleeState {
+        private final Cavern cavern;
+        private final long deadline;
+        /** Handles whose gold this agent has not yet tried to take, of those that had <br>
+         * gold when the arena started */
+        private final BitSet unclaimed;
+
+        private Node position;
+        private int stepsRemaining;
+
+        private int gold;
+        private int stepsUsed;
+        private long moves;
+        private long lostClaims;
+        private boolean escaped;
+        private boolean timedOut;
+        private boolean errored;
+        /** Set once the arena has taken the agent's result */
+        private volatile boolean closed;
+
+        private Agent(Cavern cavern, BitSet startGold, Node start, int steps, long deadline) {
+            this.cavern= cavern;
+            this.deadline= deadline;
+            unclaimed= (BitSet) startGold.clone();
+            position= start;
+            stepsRemaining= steps;
+        }
+
+        /** Close this agent and return what it has done; it is timed out if stillRunning. */
+        private synchronized AgentResult snapshot(boolean stillRunning) {
+            closed= true;
+            return new AgentResult(gold, stepsUsed, moves, lostClaims, escaped,
+                timedOut || stillRunning, errored);
+        }
+
+        /** Throw an OutOfTimeException if the agent's time is up or it is closed. */
+        private void checkTime() {
+            if (closed || System.nanoTime() - deadline > 0) throw new OutOfTimeException();
+        }
+
+        @Override
+        public synchronized Node currentNode() {
+            checkTime();
+            return position;
+        }
+
+        @Override
+        public Node exit() {
+            checkTime();
+            return cavern.getTarget();
+        }
+
+        @Override
+        public Collection<Node> allNodes() {
+            checkTime();
+            return Collections.unmodifiableSet(cavern.getGraph());
+        }
+
+        @Override
+        public IndexedGraph indexedGraph() {
+            checkTime();
+            return cavern.indexedGraph();
+        }
+
+        @Override
+        public void moveTo(int handle) {
+            var g= indexedGraph();
+            if (handle < 0 || handle >= g.size()) {
+                throw new IllegalArgumentException("moveTo: no node has handle " + handle);
+            }
+            moveTo(g.node(handle));
+        }
+
+        @Override
+        public synchronized void moveTo(Node n) {
+            checkTime();
+            var edge= position.exitTo(n);
+            if (edge == null) {
+                throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
+            }
+            if (stepsRemaining - edge.length < 0) throw new OutOfStepsException();
+            position= n;
+            stepsRemaining-= edge.length;
+            stepsUsed+= edge.length;
+            moves++ ;
+            var h= cavern.indexedGraph().handleOf(n);
+            if (unclaimed.get(h)) claimGold(h);
+        }
+
+        @Override
+        public synchronized void grabGold() {
+            checkTime();
+            var h= cavern.indexedGraph().handleOf(position);
+            if (!unclaimed.get(h)) {
+                throw new IllegalStateException("pickUpGold: Error, no gold on this tile");
+            }
+            claimGold(h);
+        }
+
+        /** Try to take the gold on the current tile, whose handle is h and which had <br>
+         * gold when the arena started; another agent may have taken it first. */
+        private void claimGold(int h) {
+            unclaimed.clear(h);
+            var g= position.getTile().takeGold();
+            if (g > 0) {
+                gold+= g;
+            } else {
+                lostClaims++ ;
+            }
+        }
+
+        @Override
+        public synchronized int stepsLeft() {
+            checkTime();
+            return stepsRemaining;
+        }
+
+        @Override
+        public long nanosRemaining() {
+            return Math.max(deadline - System.nanoTime(), 0);
+        }
+    }
+
+    private final GameCaverns caverns;
+    private final List<Finder> finders;
+
+    /** Constructor: an arena in which finders flee caverns' flee cavern, which they <br>
+     * change, so caverns must not be used by another game, nor come from <br>
+     * GameCaverns.forRun(). */
+    /* package */ FleeArena(GameCaverns caverns, List<? extends Finder> finders) {
+        if (finders.isEmpty()) throw new IllegalArgumentException("An arena needs a finder");
+        if (caverns.sharedFlee) {
+            throw new IllegalArgumentException("An arena cannot use shared caverns");
+        }
+        this.caverns= caverns;
+        this.finders= new ArrayList<>(finders);
+    }
+
+    /** Let every finder flee at once, each on its own thread, and return what each did, <br>
+     * in the order of the finders. An agent still running when its time is up is marked <br>
+     * as timed out, with what it had done by then, and closed; its (daemon) thread is <br>
+     * interrupted and left to end. */
+    public List<AgentResult> run() throws InterruptedException {
+        var flee= caverns.fleeCavern;
+        var orbTile= caverns.findCavern.getTarget().getTile();
+        var start= flee.getNodeAt(orbTile.getRow(), orbTile.getColumn());
+        var steps= GameState.fleeStepBudget(flee, flee.minPathLengthToTarget(start));
+        var limit= TimeUnit.SECONDS.toNanos(GameState.SC_TIMEOUT);
+        var graph= flee.indexedGraph();
+        var startGold= new BitSet(graph.size());
+        for (var h= 0; h < graph.size(); h++ ) {
+            if (graph.gold(h) > 0) startGold.set(h);
+        }
+        var deadline= System.nanoTime() + limit;
+
+        var agents= new Agent[finders.size()];
+        var threads= new Thread[agents.length];
+        for (var i= 0; i < agents.length; i++ ) {
+            var agent= new Agent(flee, startGold, start, steps, deadline);
+            var finder= finders.get(i);
+            agents[i]= agent;
+            threads[i]= new Thread(() -> flee(finder, agent), "arena-agent-" + i);
+            threads[i].setDaemon(true);
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+
+        List<AgentResult> results= new ArrayList<>(agents.length);
+        for (var i= 0; i < agents.length; i++ ) {
+            // Rounded up, so that no agent is closed before its time is up
+            threads[i].join(TimeUnit.NANOSECONDS.toMillis(
+                Math.max(deadline - System.nanoTime(), 0)) + 1);
+            var stillRunning= threads[i].isAlive();
+            results.add(agents[i].snapshot(stillRunning));
+            if (stillRunning) threads[i].interrupt();
+        }
+        return results;
+    }
+
+    /** Run finder's flee phase for agent, on the agent's thread, and record how it ended. */
+    private static void flee(Finder finder, Agent agent) {
+        try {
+            synchronized (agent) {
+                agent.checkTime();
+                var h= agent.cavern.indexedGraph().handleOf(agent.position);
+                if (agent.unclaimed.get(h)) agent.claimGold(h);
+            }
+            finder.flee(agent);
+            synchronized (agent) {
+                agent.escaped= agent.position == agent.cavern.getTarget();
+            }
+        } catch (OutOfTimeException e) {
+            synchronized (agent) {
+                agent.timedOut= true;
+            }
+        } catch (Throwable t) {
+            synchronized (agent) {
+                agent.errored= true;
+            }
+        }
+    }
+
+    /** Run arenas of Pollack finders and print what they did. Options: <br>
+     * -a N finders per arena (default one per core), -n N number of arenas (default 1), <br>
+     * -s seed of the first arena (default 1). Arenas are played one after the other. */
+    public static void main(String[] args) throws InterruptedException {
+        List<String> argList= Arrays.asList(args);
+        var agents= Integer.parseInt(Options.value(argList, "-a",
+            "" + Runtime.getRuntime().availableProcessors()));
+        var n= Integer.parseInt(Options.value(argList, "-n", "1"));
+        var seed= Long.parseLong(Options.value(argList, "-s", "1"));
+
+        long moves= 0;
+        long nanos= 0;
+        for (var k= 0; k < n; k++ ) {
+            List<Finder> finders= new ArrayList<>(agents);
+            for (var i= 0; i < agents; i++ ) {
+                finders.add(new Pollack());
+            }
+            var arena= new FleeArena(GameCaverns.generate(seed + k), finders);
+            var t= System.nanoTime();
+            var results= arena.run();
+            nanos+= System.nanoTime() - t;
+
+            long gold= 0;
+            long lost= 0;
+            var escaped= 0;
+            for (AgentResult r : results) {
+                moves+= r.moves;
+                gold+= r.gold;
+                lost+= r.lostClaims;
+                if (r.escaped) escaped++ ;
+            }
+            GameState.outPrintln("Seed " + (seed + k) + ": " + escaped + " of " + agents +
+                " escaped, " + gold + " gold, " + lost + " lost claims");
+        }
+        GameState.outPrintln(String.format("%d agents: %.0f moves/s", agents,
+            moves / Math.max(nanos / 1e9, 1e-9)));
+    }
+}
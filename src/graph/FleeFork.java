@@ -0,0 +1,212 @@
+package graph;
+
+import java.util.Collection;
+import java.util.function.IntUnaryOperator;
+
+/** A detached copy of the flee phase of a game, made by FleeState.fork(), in which a <br>
+ * search can try moves without changing the game. It follows the rules of the game: <br>
+ * moves cost the length of their edge and pick up the gold on the node reached. <br>
+ * The cavern is shared with the game and never copied. The gold is copy-on-write: a <br>
+ * fork sees the gold as it was when it was made, through the game's GoldLedger, and <br>
+ * records only the gold it picks up itself. So making a fork, or a fork of a fork, <br>
+ * costs time proportional to the gold picked up in the fork, not to the cavern. <br>
+ * A fork shares nothing that changes with the game or with other forks, so forks can <br>
+ * be used on different threads while the game goes on; one fork should be used by <br>
+ * one thread at a time. */
+public final class FleeFork implements FleeState {
+    private final IndexedGraph graph;
+    private final GoldLedger ledger;
+    /** Pickups in the ledger when the game was forked */
+    private final int basePickups;
+
+    /** Handles picked up in this fork, plus 1, in an open-addressing table whose <br>
+     * empty slots are 0; its length is a power of 2 */
+    private int[] picked;
+    private int pickedCount;
+
+    private final int exit;
+    /** The bonus multiplier the game earned in the hunt phase */
+    private final double bonus;
+    /** The System.nanoTime() at which the game's flee phase ends, if timeLimited */
+    private final boolean timeLimited;
+    private final long budgetEnd;
+
+    private int position;
+    private int stepsLeft;
+    private int goldCollected;
+
+    /** The gold on every handle, as seen by this fork, for simulate */
+    private final IntUnaryOperator goldView= this::gold;
+
+    /** Constructor: a fork of a game on graph whose gold pickups are recorded in <br>
+     * ledger, standing at handle position with stepsLeft steps left and goldCollected <br>
+     * gold collected. See the fields for the rest. */
+    /* package */ FleeFork(IndexedGraph graph, GoldLedger ledger, int position, int exit,
+        int stepsLeft, int goldCollected, double bonus, boolean timeLimited, long budgetEnd) {
+        this.graph= graph;
+        this.ledger= ledger;
+        basePickups= ledger.pickups();
+        picked= new int[16];
+        this.exit= exit;
+        this.bonus= bonus;
+        this.timeLimited= timeLimited;
+        this.budgetEnd= budgetEnd;
+        this.position= position;
+        this.stepsLeft= stepsLeft;
+        this.goldCollected= goldCollected;
+    }
+
+    /** Constructor: a copy of fork f. */
+    private FleeFork(FleeFork f) {
+        graph= f.graph;
+        ledger= f.ledger;
+        basePickups= f.basePickups;
+        picked= f.picked.clone();
+        pickedCount= f.pickedCount;
+        exit= f.exit;
+        bonus= f.bonus;
+        timeLimited= f.timeLimited;
+        budgetEnd= f.budgetEnd;
+        position= f.position;
+        stepsLeft= f.stepsLeft;
+        goldCollected= f.goldCollected;
+    }
+
+    /** Return the gold on handle h, as seen by this fork. */
+    public int gold(int h) {
+        if (ledger.takenWithin(h, basePickups) || isPicked(h)) return 0;
+        return graph.originalGold(h);
+    }
+
+    /** Return true iff this fork has picked up the gold of handle h. */
+    private boolean isPicked(int h) {
+        var mask= picked.length - 1;
+        for (var i= h * 0x9E3779B9 & mask; picked[i] != 0; i= i + 1 & mask) {
+            if (picked[i] == h + 1) return true;
+        }
+        return false;
+    }
+
+    /** Record that this fork has picked up the gold of handle h. <br>
+     * Precondition: it has not done so already. */
+    private void pick(int h) {
+        if (2 * (pickedCount + 1) > picked.length) {
+            var old= picked;
+            picked= new int[2 * old.length];
+            for (int p : old) {
+                if (p != 0) insert(p);
+            }
+        }
+        insert(h + 1);
+        pickedCount++ ;
+    }
+
+    /** Put entry p, a handle plus 1, in the table picked, which has room for it. */
+    private void insert(int p) {
+        var mask= picked.length - 1;
+        var i= (p - 1) * 0x9E3779B9 & mask;
+        while (picked[i] != 0) i= i + 1 & mask;
+        picked[i]= p;
+    }
+
+    /** Return a new fork of this fork, as it is now. */
+    @Override
+    public FleeFork fork() {
+        return new FleeFork(this);
+    }
+
+    @Override
+    public Node currentNode() {
+        return graph.node(position);
+    }
+
+    /** Return the handle of the current location. */
+    public int currentHandle() {
+        return position;
+    }
+
+    @Override
+    public Node exit() {
+        return graph.node(exit);
+    }
+
+    @Override
+    public Collection<Node> allNodes() {
+        return graph.nodes();
+    }
+
+    @Override
+    public IndexedGraph indexedGraph() {
+        return graph;
+    }
+
+    @Override
+    public void moveTo(Node n) {
+        var h= graph.handleOf(n);
+        if (h < 0) throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
+        moveTo(h);
+    }
+
+    /** Move to the node with handle handle, as in the game. <br>
+     * Throw an IllegalArgumentException if it is not adjacent to the current location, <br>
+     * and an IllegalStateException, without moving, if its edge takes more steps than <br>
+     * are left (where the game would end the flee phase as failed). */
+    @Override
+    public void moveTo(int handle) {
+        var e= handle >= 0 && handle < graph.size() ? graph.edgeBetween(position, handle) : -1;
+        if (e < 0) {
+            throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
+        }
+        var distance= graph.edgeWeight(e);
+        if (stepsLeft - distance < 0) {
+            throw new IllegalStateException("moveTo: out of steps");
+        }
+        position= handle;
+        stepsLeft-= distance;
+        if (gold(position) > 0) grabGold();
+    }
+
+    @Override
+    public void grabGold() {
+        var g= gold(position);
+        if (g <= 0) throw new IllegalStateException("pickUpGold: Error, no gold on this tile");
+        pick(position);
+        goldCollected+= g;
+    }
+
+    @Override
+    public int stepsLeft() {
+        return stepsLeft;
+    }
+
+    @Override
+    public RouteOutcome simulate(int[] route, RouteOutcome out) {
+        return graph.simulate(route, position, exit, stepsLeft, goldView, out);
+    }
+
+    @Override
+    public RouteOutcome simulate(int[] route, int startHandle, int stepsLeft,
+        RouteOutcome out) {
+        return graph.simulate(route, startHandle, exit, stepsLeft, goldView, out);
+    }
+
+    @Override
+    public long nanosRemaining() {
+        return timeLimited ? Math.max(budgetEnd - System.nanoTime(), 0) : Long.MAX_VALUE;
+    }
+
+    /** Return the gold collected in the game and this fork. */
+    public int getGoldCollected() {
+        return goldCollected;
+    }
+
+    /** Return the score of the game if it ended now, at the exit. */
+    public int getScore() {
+        return (int) (bonus * goldCollected);
+    }
+
+    /** Return true iff the current location is the exit. */
+    public boolean atExit() {
+        return position == exit;
+    }
+}
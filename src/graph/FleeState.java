@@ -1,6 +1,7 @@
 package graph;
 
 import java.util.Collection;
+import java.util.List;
 
 /** A FleeState provides all the information necessary to<br>
  * get out of the cavern and collect gold on the way.
@@ -9,7 +10,7 @@ import java.util.Collection;
  * which will allow computation of the path.<br>
  * Once you have determined how Pres Pollock should get out, call<br>
  * moveTo(Node) repeatedly to move to each node. */
-public interface FleeState {
+public interface FleeState extends TimeBudget {
     /** Return the Node corresponding to Pres Pollock's location in the graph. */
     Node currentNode();
 
@@ -26,6 +27,70 @@ public interface FleeState {
      * location. */
     void moveTo(Node n);
 
+    /** Return a view of the graph in which every node has an int handle and adjacency, <br>
+     * edge weights and gold are found by handle in primitive arrays (see IndexedGraph). <br>
+     * This one builds a new view on each call; GameState builds it once per cavern. */
+    default IndexedGraph indexedGraph() {
+        return new IndexedGraph(allNodes());
+    }
+
+    /** Change Pres Pollock's location to the node with handle handle in indexedGraph(), <br>
+     * with the same rules as moveTo(Node). <br>
+     * Throw an IllegalArgumentException if there is no such handle. */
+    default void moveTo(int handle) {
+        var g= indexedGraph();
+        if (handle < 0 || handle >= g.size()) {
+            throw new IllegalArgumentException("moveTo: no node has handle " + handle);
+        }
+        moveTo(g.node(handle));
+    }
+
+    /** Store in out, and return out, what moving along route would achieve, without <br>
+     * moving: the gold picked up, the steps used, and whether route ends at the exit <br>
+     * within stepsLeft(). route holds handles of indexedGraph() and starts at Pres <br>
+     * Pollock's location; a node's gold counts only the first time route reaches it. <br>
+     * Throw an IllegalArgumentException if route is not a path from his location. <br>
+     * This reads his location and the steps left as they are now; planner threads should <br>
+     * use simulate(route, startHandle, stepsLeft, out) with a snapshot of them instead. */
+    default RouteOutcome simulate(int[] route, RouteOutcome out) {
+        return simulate(route, indexedGraph().handleOf(currentNode()), stepsLeft(), out);
+    }
+
+    /** Same as simulate(route, out), but as if Pres Pollock stood at handle startHandle <br>
+     * of indexedGraph() with stepsLeft steps left, typically a snapshot of his location <br>
+     * and steps taken on the thread that moves. It reads nothing else that moves change, <br>
+     * so any number of planner threads may call it at once, also while he moves. */
+    default RouteOutcome simulate(int[] route, int startHandle, int stepsLeft,
+        RouteOutcome out) {
+        var g= indexedGraph();
+        return g.simulate(route, startHandle, g.handleOf(exit()), stepsLeft, out);
+    }
+
+    /** Return a detached copy of this state, in which moves can be tried without <br>
+     * changing this one (see FleeFork). Throw an UnsupportedOperationException if this <br>
+     * state cannot be forked, as by default. */
+    default FleeFork fork() {
+        throw new UnsupportedOperationException("fork: " + getClass().getName() +
+            " cannot be forked");
+    }
+
+    /** Move Pres Pollock along path, whose first node is his location: to path.get(1), <br>
+     * then path.get(2), and so on, picking up gold on the way as moveTo(Node) does. <br>
+     * An empty path is no move at all. <br>
+     * Throw an IllegalArgumentException if path does not start at his location or <br>
+     * two consecutive nodes of it are not directly connected. <br>
+     * An implementation may check the whole path before moving at all; <br>
+     * this one simply calls moveTo(Node) for each node. */
+    default void moveAlong(List<Node> path) {
+        if (path.isEmpty()) return;
+        if (!path.get(0).equals(currentNode())) {
+            throw new IllegalArgumentException("moveAlong: path must start at the current node");
+        }
+        for (int i= 1; i < path.size(); i++ ) {
+            moveTo(path.get(i));
+        }
+    }
+
     /** Pick up the gold on the current tile. Students: Don't call this method because <br>
      * gold on a node is automatically picked up when the node is reached. <br>
      * Throw an IllegalStateException if there is no gold at the current location, <br>
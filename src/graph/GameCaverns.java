@@ -0,0 +1,98 @@
+package graph;
+
+import java.util.Random;
+
+/** The two caverns of the game generated from a seed, together with the length of a <br>
+ * shortest path from the entrance of the find cavern to the orb. <br>
+ * Generating them (with its retries and shortest-path checks) is most of the cost of <br>
+ * setting up a game, so a Tournament generates them once per seed and plays every run <br>
+ * in the same caverns, from forRun(). */
+/* package */ final class GameCaverns {
+    /** The seed the caverns were generated from */
+    final long seed;
+
+    /** The cavern of the hunt phase. Nothing in a game changes it, so runs share it. */
+    final Cavern findCavern;
+
+    /** The cavern of the flee phase. A game picks up its gold. */
+    final Cavern fleeCavern;
+
+    /** true iff fleeCavern is shared by several games, which then pick up its gold <br>
+     * in GoldLedgers of their own and never on its tiles */
+    final boolean sharedFlee;
+
+    /** Length of a shortest path from the entrance of findCavern to the orb */
+    final int minStepsToFind;
+
+    /** Time taken to generate the caverns, in nanoseconds */
+    long generationNanos;
+    /** Number of caverns generated and thrown away on the way */
+    int generationRetries;
+
+    /** Constructor: an instance for seed s with caverns find and flee, <br>
+     * where minSteps is the length of a shortest path to the orb in find, <br>
+     * and flee is shared by several games iff shared. */
+    private GameCaverns(long s, Cavern find, Cavern flee, int minSteps, boolean shared) {
+        seed= s;
+        findCavern= find;
+        fleeCavern= flee;
+        minStepsToFind= minSteps;
+        sharedFlee= shared;
+    }
+
+    /** Return the caverns of the game with seed seed, <br>
+     * generated exactly as GameState always has. */
+    static GameCaverns generate(long seed) {
+        var rand= new Random(seed);
+        var ROWS= rand.nextInt(GameState.MAX_ROWS - GameState.MIN_ROWS + 1) + GameState.MIN_ROWS;
+        var COLS= rand.nextInt(GameState.MAX_COLS - GameState.MIN_COLS + 1) + GameState.MIN_COLS;
+        return generate(seed, rand, ROWS, COLS);
+    }
+
+    /** Return caverns of rows rows and cols columns generated from seed the way <br>
+     * generate(seed) generates caverns of a random size. Used to benchmark the <br>
+     * engine on caverns larger than any game has. */
+    static GameCaverns generate(long seed, int rows, int cols) {
+        return generate(seed, new Random(seed), rows, cols);
+    }
+
+    /** Return the caverns of the game with seed seed, of ROWS rows and COLS columns, <br>
+     * generated using rand. */
+    private static GameCaverns generate(long seed, Random rand, int ROWS, int COLS) {
+        GameEvents.enter(seed, GameEvents.GENERATION);
+        var event= new GameEvents.Generation();
+        event.begin();
+        var start= System.nanoTime();
+        var find= Cavern.digFindCavern(ROWS, COLS, rand);
+        var minSteps= find.minPathLengthToTarget(find.getEntrance());
+        var orbTile= find.getTarget().getTile();
+        var flee= Cavern.digFindCavern(ROWS, COLS, orbTile.getRow(), orbTile.getColumn(), rand);
+        var caverns= new GameCaverns(seed, find, flee, minSteps, false);
+        caverns.generationNanos= System.nanoTime() - start;
+        caverns.generationRetries= find.getGenerationAttempts() + flee.getGenerationAttempts() - 2;
+        event.end();
+        if (event.shouldCommit()) {
+            event.seed= seed;
+            event.stage= GameEvents.GENERATION;
+            event.rows= ROWS;
+            event.columns= COLS;
+            event.retries= caverns.generationRetries;
+            event.commit();
+        }
+        GameEvents.leave();
+        return caverns;
+    }
+
+    /** Return caverns for one more game on this seed. Both caverns, with their indexed <br>
+     * graphs and distances, are shared with every other run; the game picks up the gold <br>
+     * of the flee cavern in a GoldLedger of its own, so every run starts with all of it. <br>
+     * This takes constant time; the game's ledger takes time linear in the cavern. <br>
+     * Caverns from forRun() must not be given to a FleeArena, whose agents pick up gold <br>
+     * on the tiles. */
+    GameCaverns forRun() {
+        var caverns= new GameCaverns(seed, findCavern, fleeCavern, minStepsToFind, true);
+        caverns.generationNanos= generationNanos;
+        caverns.generationRetries= generationRetries;
+        return caverns;
+    }
+}
@@ -0,0 +1,166 @@
+package graph;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** JDK Flight Recorder events of the engine, to see in JMC where a game's time went <br>
+ * next to GC and JIT activity. Every event carries the seed and stage of its game. <br>
+ * They are cheap enough to leave in: an event that is not being recorded is never <br>
+ * committed, and its seed and stage are only filled in when it is. <br>
+ * Record them with -XX:StartFlightRecording or jcmd JFR.start; they are enabled <br>
+ * in the default settings. */
+public final class GameEvents {
+    /** Number of moveTo calls covered by one MoveWindow event */
+    static final int MOVE_WINDOW= 1000;
+
+    /** Stage of events emitted while caverns are generated */
+    static final String GENERATION= "GENERATION";
+
+    /** The game the calling thread is working on. */
+    private static final class Context {
+        private long seed;
+        private String stage= "NONE";
+    }
+
+    /** The game each thread is working on, for events raised outside GameState */
+    private static final ThreadLocal<Context> CONTEXT= ThreadLocal.withInitial(Context::new);
+
+    private GameEvents() {}
+
+    /** Record that the calling thread is now working on stage of the game with seed seed. */
+    static void enter(long seed, String stage) {
+        var c= CONTEXT.get();
+        c.seed= seed;
+        c.stage= stage;
+    }
+
+    /** Record that the calling thread is no longer working on a game, so that its <br>
+     * events are not attributed to the last game it worked on. */
+    static void leave() {
+        CONTEXT.remove();
+    }
+
+    /** The generation of both caverns of a game. */
+    @Name("graph.Generation")
+    @Label("Cavern Generation")
+    @Category("Caverns")
+    @Description("Generation of the find and flee caverns of a game, with its retries")
+    static final class Generation extends Event {
+        @Label("Seed")
+        long seed;
+
+        @Label("Stage")
+        String stage;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Columns")
+        int columns;
+
+        @Label("Retries")
+        @Description("Caverns generated and thrown away")
+        int retries;
+    }
+
+    /** One phase (hunt or flee) of a game. */
+    @Name("graph.Phase")
+    @Label("Game Phase")
+    @Category("Caverns")
+    @Description("A hunt or flee phase, from the call into the finder until it returns")
+    static final class Phase extends Event {
+        @Label("Seed")
+        long seed;
+
+        @Label("Stage")
+        String stage;
+
+        @Label("Steps")
+        @Description("Steps taken when hunting, flee steps used when fleeing")
+        int steps;
+
+        @Label("Succeeded")
+        boolean succeeded;
+
+        @Label("Timed Out")
+        boolean timedOut;
+
+        /** End this phase of the game with seed s in stage st, and commit it if it is <br>
+         * being recorded. */
+        void finish(long s, String st, int stps, boolean success, boolean timeout) {
+            end();
+            if (!shouldCommit()) return;
+            seed= s;
+            stage= st;
+            steps= stps;
+            succeeded= success;
+            timedOut= timeout;
+            commit();
+        }
+    }
+
+    /** A run of up to MOVE_WINDOW consecutive moveTo calls of one phase. */
+    @Name("graph.MoveWindow")
+    @Label("Move Window")
+    @Category("Caverns")
+    @Description("A batch of consecutive moveTo calls of one phase")
+    static final class MoveWindow extends Event {
+        @Label("Seed")
+        long seed;
+
+        @Label("Stage")
+        String stage;
+
+        @Label("Moves")
+        int moves;
+
+        /** End this window of m moves in stage st of the game with seed s, and commit it <br>
+         * if it is being recorded. */
+        void finish(long s, String st, int m) {
+            end();
+            if (!shouldCommit()) return;
+            seed= s;
+            stage= st;
+            moves= m;
+            commit();
+        }
+    }
+
+    /** One shortest-path computation. Create one and call begin() before computing <br>
+     * the path, and finish() once it is known. */
+    @Name("graph.ShortestPath")
+    @Label("Shortest Path")
+    @Category("Caverns")
+    @Description("A run of Dijkstra's algorithm, by the engine or by a finder")
+    public static final class ShortestPath extends Event {
+        @Label("Seed")
+        long seed;
+
+        @Label("Stage")
+        String stage;
+
+        @Label("Caller")
+        String caller;
+
+        @Label("Length")
+        @Description("Length of the path found, -1 if there is none")
+        int length;
+
+        /** End this computation, by caller, of a path of length len (-1 if there is none) <br>
+         * and commit it, with the seed and stage of the calling thread's game, <br>
+         * if it is being recorded. */
+        public void finish(String c, int len) {
+            end();
+            if (!shouldCommit()) return;
+            var context= CONTEXT.get();
+            seed= context.seed;
+            stage= context.stage;
+            caller= c;
+            length= len;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package graph;
+
+/** The metrics of one game: how long setting it up took, how much work the engine did <br>
+ * for the finder, and how well and how fast the finder played. <br>
+ * GameState counts into an instance as the game goes; the counters are plain fields, <br>
+ * since all calls of one game come from one finder thread at a time. <br>
+ * MetricsWriter streams instances as JSON lines or CSV. */
+public final class GameMetrics {
+    /** Names of the metrics, in the order of toCsv() */
+    public static final String CSV_HEADER= "seed,generationNanos,generationRetries," +
+        "minPathCalls,minPathNanos,neighborsCalls,findMoveCalls,fleeMoveCalls," +
+        "stepsTaken,minStepsToFind,fleeStepsUsed,fleeStepBudget," +
+        "huntWallNanos,huntCpuNanos,huntAllocatedBytes," +
+        "fleeWallNanos,fleeCpuNanos,fleeAllocatedBytes,gold,score";
+
+    long seed;
+    long generationNanos;
+    int generationRetries;
+    long minPathCalls;
+    long minPathNanos;
+    long neighborsCalls;
+    long findMoveCalls;
+    long fleeMoveCalls;
+    int stepsTaken;
+    int minStepsToFind;
+    int fleeStepsUsed;
+    int fleeStepBudget;
+    long huntWallNanos;
+    long huntCpuNanos;
+    long huntAllocatedBytes;
+    long fleeWallNanos;
+    long fleeCpuNanos;
+    long fleeAllocatedBytes;
+    int gold;
+    int score;
+
+    /** Return the seed of the game. */
+    public long getSeed() {
+        return seed;
+    }
+
+    /** Return the time taken to generate both caverns, in nanoseconds. */
+    public long getGenerationNanos() {
+        return generationNanos;
+    }
+
+    /** Return the number of caverns that were generated and thrown away <br>
+     * (because the orb was too close or the flee start was a wall). */
+    public int getGenerationRetries() {
+        return generationRetries;
+    }
+
+    /** Return the number of calls of Cavern.minPathLengthToTarget made by the game. */
+    public long getMinPathCalls() {
+        return minPathCalls;
+    }
+
+    /** Return the time spent in those calls, in nanoseconds. */
+    public long getMinPathNanos() {
+        return minPathNanos;
+    }
+
+    /** Return the number of calls of neighbors(). */
+    public long getNeighborsCalls() {
+        return neighborsCalls;
+    }
+
+    /** Return the number of valid moves made with moveTo(long) in the hunt phase. */
+    public long getFindMoveCalls() {
+        return findMoveCalls;
+    }
+
+    /** Return the number of valid moves made in the flee phase (moveAlong counts one per edge). */
+    public long getFleeMoveCalls() {
+        return fleeMoveCalls;
+    }
+
+    /** Return the number of steps taken in the hunt phase. */
+    public int getStepsTaken() {
+        return stepsTaken;
+    }
+
+    /** Return the fewest steps in which the orb could have been reached. */
+    public int getMinStepsToFind() {
+        return minStepsToFind;
+    }
+
+    /** Return the number of flee steps used. */
+    public int getFleeStepsUsed() {
+        return fleeStepsUsed;
+    }
+
+    /** Return the number of steps the finder had to flee. */
+    public int getFleeStepBudget() {
+        return fleeStepBudget;
+    }
+
+    /** Return the wall-clock time of the hunt phase, in nanoseconds. */
+    public long getHuntWallNanos() {
+        return huntWallNanos;
+    }
+
+    /** Return the CPU time of the hunt phase, in nanoseconds, or -1 if unknown. */
+    public long getHuntCpuNanos() {
+        return huntCpuNanos;
+    }
+
+    /** Return the bytes allocated on the finder's thread in the hunt phase, <br>
+     * or -1 if unknown. */
+    public long getHuntAllocatedBytes() {
+        return huntAllocatedBytes;
+    }
+
+    /** Return the wall-clock time of the flee phase, in nanoseconds. */
+    public long getFleeWallNanos() {
+        return fleeWallNanos;
+    }
+
+    /** Return the CPU time of the flee phase, in nanoseconds, or -1 if unknown. */
+    public long getFleeCpuNanos() {
+        return fleeCpuNanos;
+    }
+
+    /** Return the bytes allocated on the finder's thread in the flee phase, <br>
+     * or -1 if unknown. */
+    public long getFleeAllocatedBytes() {
+        return fleeAllocatedBytes;
+    }
+
+    /** Return the gold collected. */
+    public int getGold() {
+        return gold;
+    }
+
+    /** Return the score. */
+    public int getScore() {
+        return score;
+    }
+
+    /** Return the metrics as one line of CSV, in the order of CSV_HEADER. */
+    public String toCsv() {
+        return seed + "," + generationNanos + "," + generationRetries + "," +
+            minPathCalls + "," + minPathNanos + "," + neighborsCalls + "," +
+            findMoveCalls + "," + fleeMoveCalls + "," + stepsTaken + "," +
+            minStepsToFind + "," + fleeStepsUsed + "," + fleeStepBudget + "," +
+            huntWallNanos + "," + huntCpuNanos + "," + huntAllocatedBytes + "," +
+            fleeWallNanos + "," + fleeCpuNanos + "," + fleeAllocatedBytes + "," +
+            gold + "," + score;
+    }
+
+    /** Return the metrics as a one-line JSON object, with the names of CSV_HEADER. */
+    public String toJson() {
+        String[] names= CSV_HEADER.split(",");
+        String[] values= toCsv().split(",");
+        var sb= new StringBuilder("{");
+        for (var i= 0; i < names.length; i++ ) {
+            if (i > 0) sb.append(',');
+            sb.append('"').append(names[i]).append("\":").append(values[i]);
+        }
+        return sb.append('}').toString();
+    }
+}
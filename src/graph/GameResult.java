@@ -0,0 +1,187 @@
+package graph;
+
+/** An immutable summary of one finished game. GameRunner returns one of these per seed, <br>
+ * so results can be collected on other threads once the GameState itself is gone. */
+public final class GameResult {
+    private final long seed;
+    private final int score;
+    private final int gold;
+    private final double bonus;
+    private final int stepsTaken;
+    private final int minStepsToFind;
+    private final int fleeStepsUsed;
+
+    private final long huntWallNanos;
+    private final long huntCpuNanos;
+    private final long fleeWallNanos;
+    private final long fleeCpuNanos;
+    private final long huntAllocatedBytes;
+    private final long fleeAllocatedBytes;
+
+    private final boolean huntSucceeded;
+    private final boolean fleeSucceeded;
+    private final boolean huntTimedOut;
+    private final boolean fleeTimedOut;
+    private final boolean huntErrored;
+    private final boolean fleeErrored;
+
+    /** The moves of the game (null if they were not recorded) */
+    private final MoveTrace trace;
+
+    /** The counters and timings of the game */
+    private final GameMetrics metrics;
+
+    /** The latencies of the finder API (null if they were not recorded) */
+    private final ApiLatencies latencies;
+
+    /** The stack samples of the finder's thread (null if it was not sampled) */
+    private final StackProfile profile;
+
+    /** Constructor: the result of state, which must have finished running. */
+    /* package */ GameResult(GameState state) {
+        seed= state.getSeed();
+        score= state.getScore();
+        gold= state.getGoldCollected();
+        bonus= state.getBonusFactor();
+        stepsTaken= state.getStepsTaken();
+        minStepsToFind= state.getMinStepsToFind();
+        fleeStepsUsed= state.getFleeStepsUsed();
+
+        huntWallNanos= state.getHuntTime().getWallNanos();
+        huntCpuNanos= state.getHuntTime().getCpuNanos();
+        fleeWallNanos= state.getFleeTime().getWallNanos();
+        fleeCpuNanos= state.getFleeTime().getCpuNanos();
+        huntAllocatedBytes= state.getHuntTime().getAllocatedBytes();
+        fleeAllocatedBytes= state.getFleeTime().getAllocatedBytes();
+
+        huntSucceeded= state.getHuntSucceeded();
+        fleeSucceeded= state.getFleeSucceeded();
+        huntTimedOut= state.getHuntTimeout();
+        fleeTimedOut= state.getFleeTimeout();
+        huntErrored= state.getHuntErrored();
+        fleeErrored= state.getFleeErrored();
+        trace= state.getTrace();
+        metrics= state.getMetrics();
+        latencies= state.getLatencies();
+        profile= state.getProfile();
+    }
+
+    /** Return the seed the game was generated from. */
+    public long getSeed() {
+        return seed;
+    }
+
+    /** Return the final score: the bonus multiplier times the gold collected. */
+    public int getScore() {
+        return score;
+    }
+
+    /** Return the gold collected during the flee phase. */
+    public int getGold() {
+        return gold;
+    }
+
+    /** Return the bonus multiplier earned in the hunt phase. */
+    public double getBonus() {
+        return bonus;
+    }
+
+    /** Return the number of steps taken in the hunt phase. */
+    public int getStepsTaken() {
+        return stepsTaken;
+    }
+
+    /** Return the length of a shortest path from the entrance to the orb. */
+    public int getMinStepsToFind() {
+        return minStepsToFind;
+    }
+
+    /** Return the number of steps used in the flee phase. */
+    public int getFleeStepsUsed() {
+        return fleeStepsUsed;
+    }
+
+    /** Return the wall-clock time of the hunt phase, in nanoseconds. */
+    public long getHuntWallNanos() {
+        return huntWallNanos;
+    }
+
+    /** Return the CPU time of the finder's thread in the hunt phase, in nanoseconds, <br>
+     * or -1 if it could not be measured. */
+    public long getHuntCpuNanos() {
+        return huntCpuNanos;
+    }
+
+    /** Return the wall-clock time of the flee phase, in nanoseconds. */
+    public long getFleeWallNanos() {
+        return fleeWallNanos;
+    }
+
+    /** Return the CPU time of the finder's thread in the flee phase, in nanoseconds, <br>
+     * or -1 if it could not be measured. */
+    public long getFleeCpuNanos() {
+        return fleeCpuNanos;
+    }
+
+    /** Return the bytes allocated on the finder's thread in the hunt phase, <br>
+     * or -1 if they could not be measured. */
+    public long getHuntAllocatedBytes() {
+        return huntAllocatedBytes;
+    }
+
+    /** Return the bytes allocated on the finder's thread in the flee phase, <br>
+     * or -1 if they could not be measured. */
+    public long getFleeAllocatedBytes() {
+        return fleeAllocatedBytes;
+    }
+
+    /** Return true iff the finder returned from find() standing on the orb. */
+    public boolean huntSucceeded() {
+        return huntSucceeded;
+    }
+
+    /** Return true iff the finder returned from flee() standing on the exit. */
+    public boolean fleeSucceeded() {
+        return fleeSucceeded;
+    }
+
+    /** Return true iff the hunt phase ran out of time. */
+    public boolean huntTimedOut() {
+        return huntTimedOut;
+    }
+
+    /** Return true iff the flee phase ran out of time. */
+    public boolean fleeTimedOut() {
+        return fleeTimedOut;
+    }
+
+    /** Return true iff the finder threw an exception during the hunt phase. */
+    public boolean huntErrored() {
+        return huntErrored;
+    }
+
+    /** Return true iff the finder threw an exception during the flee phase. */
+    public boolean fleeErrored() {
+        return fleeErrored;
+    }
+
+    /** Return the moves of the game, or null if they were not recorded. */
+    public MoveTrace getTrace() {
+        return trace;
+    }
+
+    /** Return the counters and timings of the game. */
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Return the latencies of the finder API, or null if they were not recorded. */
+    public ApiLatencies getLatencies() {
+        return latencies;
+    }
+
+    /** Return the stack samples of the finder's thread, or null if it was not sampled. */
+    public StackProfile getProfile() {
+        return profile;
+    }
+}
@@ -0,0 +1,308 @@
+package graph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/** An instance plays many headless games concurrently on a fixed pool of threads,<br>
+ * or with each game on its own virtual thread.<br>
+ * Each game is isolated: it generates its own caverns, gets its own GameState and <br>
+ * a fresh Finder from the supplier, so games share no mutable state. <br>
+ * Results come back in seed order, whatever the order in which games finish, <br>
+ * so the aggregate of a batch depends only on its seeds. */
+public class GameRunner {
+
+    /** Number of games played at the same time, or of carrier threads for virtual threads */
+    private final int threads;
+
+    /** true iff every game gets its own virtual thread */
+    private final boolean virtual;
+
+    /** Source of a new Finder for every game */
+    private final Supplier<? extends Finder> finders;
+
+    /** The live statistics of this JVM, which every game is counted in */
+    private final RunnerStats stats= RunnerStats.get();
+
+    /** Where the move trace of every game is written, in batches <br>
+     * (null if moves are not recorded) */
+    private BatchedChannel traceOut;
+
+    /** Where the metrics of every game are written (null if they are not written) */
+    private MetricsWriter metricsOut;
+
+    /** The finder API latencies of all games, merged (null if they are not recorded) */
+    private ApiLatencies latencies;
+
+    /** true iff timeouts are enforced on CPU time rather than wall-clock time */
+    private boolean cpuTimeout;
+
+    /** Directory the stack samples of every game are written to (null if not sampled) */
+    private Path profileDir;
+
+    /** Constructor: a runner that plays games on nThreads threads, <br>
+     * asking finderSupplier for a new Finder for each game. */
+    public GameRunner(int nThreads, Supplier<? extends Finder> finderSupplier) {
+        this(nThreads, false, finderSupplier);
+    }
+
+    /** Constructor: a runner that plays games on nThreads threads, or on virtual threads <br>
+     * if isVirtual, asking finderSupplier for a new Finder for each game. */
+    private GameRunner(int nThreads, boolean isVirtual,
+        Supplier<? extends Finder> finderSupplier) {
+        if (nThreads < 1) {
+            throw new IllegalArgumentException("A runner needs at least one thread");
+        }
+        threads= nThreads;
+        virtual= isVirtual;
+        finders= finderSupplier;
+    }
+
+    /** Return a runner that gives each game its own virtual thread, with timeouts enforced <br>
+     * cooperatively (see GameState.runWithCooperativeTimeLimit), so that thousands of games <br>
+     * can be in flight while finders sleep or block. The virtual threads share a pool of <br>
+     * nCarriers carrier threads. Needs Java 21 or later. <br>
+     * The carrier pool is sized through the jdk.virtualThreadScheduler system properties, <br>
+     * which the JVM reads once, when it starts its first virtual thread; so this must be <br>
+     * called before any virtual thread exists, unless those properties are set already. */
+    public static GameRunner onVirtualThreads(int nCarriers,
+        Supplier<? extends Finder> finderSupplier) {
+        if (System.getProperty("jdk.virtualThreadScheduler.parallelism") == null) {
+            System.setProperty("jdk.virtualThreadScheduler.parallelism", "" + nCarriers);
+            System.setProperty("jdk.virtualThreadScheduler.maxPoolSize", "" + nCarriers);
+        }
+        var carriers= Integer.getInteger("jdk.virtualThreadScheduler.parallelism", nCarriers);
+        return new GameRunner(carriers, true, finderSupplier);
+    }
+
+    /** Return the n seeds that GameState.main plays for seed: <br>
+     * seed itself, then each following seed drawn from a Random seeded with the previous one. <br>
+     * If seed is 0, return n random seeds instead. */
+    public static long[] seeds(long seed, int n) {
+        var seeds= new long[n];
+        var rand= new Random();
+        for (var i= 0; i < n; i++ ) {
+            if (seed == 0) {
+                seeds[i]= rand.nextLong();
+            } else {
+                seeds[i]= seed;
+                seed= new Random(seed).nextLong();
+            }
+        }
+        return seeds;
+    }
+
+    /** Record the moves of every game played from now on and write their traces to out, <br>
+     * in seed order (see MoveTrace). Traces are passed on to out in batches, all of them <br>
+     * by the time run returns. */
+    public void recordTraces(WritableByteChannel out) {
+        traceOut= new BatchedChannel(out, BatchedChannel.DEFAULT_CAPACITY);
+    }
+
+    /** Write the metrics of every game played from now on to out, in seed order. */
+    public void writeMetrics(MetricsWriter out) {
+        metricsOut= out;
+    }
+
+    /** Enforce the timeouts of every game played from now on on the CPU time of its <br>
+     * thread, not on wall-clock time, so that games starved by other games are not <br>
+     * timed out (see GameState.enforceCpuTime). */
+    public void enforceCpuTime() {
+        cpuTimeout= true;
+    }
+
+    /** Sample the stack of the finder's thread every intervalMicros microseconds in <br>
+     * every game played from now on, and write the samples of each game to <br>
+     * dir/seedS.collapsed, where S is its seed (see StackProfile). <br>
+     * dir is created if necessary. */
+    public void sampleStacks(Path dir, long intervalMicros) throws IOException {
+        Files.createDirectories(dir);
+        StackSampler.setIntervalMicros(intervalMicros);
+        profileDir= dir;
+    }
+
+    /** Record the finder API latencies of every game played from now on, <br>
+     * merging them into getLatencies(). */
+    public void recordLatencies() {
+        latencies= new ApiLatencies();
+    }
+
+    /** Return the finder API latencies of all games played since recordLatencies() <br>
+     * was called, or null if it was not called. */
+    public ApiLatencies getLatencies() {
+        return latencies;
+    }
+
+    /** Play one game for every seed in seeds, with timeouts, and return the results <br>
+     * in the same order as seeds. */
+    public List<GameResult> run(long[] seeds) throws InterruptedException {
+        List<GameResult> results= new ArrayList<>(seeds.length);
+        run(seeds, results::add);
+        return results;
+    }
+
+    /** Play one game for every seed in seeds, with timeouts, and give each result to sink <br>
+     * in the same order as seeds, as soon as it and all results before it are known. <br>
+     * sink is called on the calling thread. */
+    public void run(long[] seeds, Consumer<GameResult> sink) throws InterruptedException {
+        ExecutorService pool= virtual ? newVirtualThreadExecutor() :
+            Executors.newFixedThreadPool(threads);
+        List<AtomicBoolean> tickets= new ArrayList<>(seeds.length);
+        try {
+            List<Future<GameResult>> futures= new ArrayList<>(seeds.length);
+            for (long seed : seeds) {
+                var ticket= stats.gameQueued();
+                tickets.add(ticket);
+                futures.add(pool.submit(() -> play(seed, ticket)));
+            }
+            for (Future<GameResult> f : futures) {
+                try {
+                    var r= f.get();
+                    if (traceOut != null) r.getTrace().writeTo(traceOut);
+                    if (metricsOut != null) metricsOut.write(r.getMetrics());
+                    if (latencies != null) latencies.add(r.getLatencies());
+                    if (profileDir != null) writeProfile(r);
+                    sink.accept(r);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot write the record of a game", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("The engine failed while playing a game",
+                        e.getCause());
+                }
+            }
+            if (traceOut != null) traceOut.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the record of a game", e);
+        } finally {
+            pool.shutdownNow();
+            for (AtomicBoolean t : tickets) stats.gameCancelled(t);
+        }
+    }
+
+    /** Play one game for every seed in seeds and print the results (see printResults), <br>
+     * and the merged latencies if they are recorded. <br>
+     * On virtual threads, also print carrier utilization and pinning statistics. */
+    public void runAndPrint(long[] seeds) throws InterruptedException {
+        if (!virtual) {
+            printResults(run(seeds));
+            if (latencies != null) latencies.print();
+            return;
+        }
+        var stats= new VirtualThreadStats(threads);
+        List<GameResult> results;
+        try {
+            results= run(seeds);
+        } finally {
+            stats.close();
+        }
+        printResults(results);
+        if (latencies != null) latencies.print();
+        stats.print();
+    }
+
+    /** Write the stack samples of r to profileDir/seedS.collapsed, S being r's seed. */
+    private void writeProfile(GameResult r) throws IOException {
+        var file= profileDir.resolve("seed" + r.getSeed() + ".collapsed");
+        try (var out= Files.newBufferedWriter(file)) {
+            r.getProfile().writeCollapsed(out);
+        }
+    }
+
+    /** Return true iff this JVM has virtual threads (Java 21 or later). */
+    public static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /** Return an executor that starts a new virtual thread for each task. <br>
+     * It is looked up reflectively so that the rest of the engine still runs on <br>
+     * Java versions without virtual threads. */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later", e);
+        }
+    }
+
+    /** Play the game for seed with timeouts and return its result. <br>
+     * The game prints nothing; its result is reported by the caller. */
+    /* package */ GameResult play(long seed) {
+        return play(seed, stats.gameQueued());
+    }
+
+    /** Play the game for seed, whose RunnerStats ticket is ticket, as play(seed) does. <br>
+     * Throw a CancellationException instead if the ticket was cancelled first. */
+    private GameResult play(long seed, AtomicBoolean ticket) {
+        if (!stats.gameStarted(ticket)) throw new CancellationException();
+        GameResult result;
+        try {
+            var state= new GameState(seed, false, finders.get());
+            state.setQuiet();
+            if (traceOut != null) state.recordTrace();
+            if (latencies != null) state.recordLatencies();
+            if (cpuTimeout) state.enforceCpuTime();
+            if (profileDir != null) state.sampleStacks();
+            if (virtual) {
+                state.runWithCooperativeTimeLimit();
+            } else {
+                state.runWithTimeLimit();
+            }
+            if (traceOut != null) state.getTrace().setScore(state.getScore());
+            result= new GameResult(state);
+        } catch (RuntimeException | Error e) {
+            stats.gameFailed();
+            throw e;
+        }
+        stats.cavernsGenerated(result.getMetrics().getGenerationNanos(),
+            result.getMetrics().getGenerationRetries());
+        stats.gameFinished(result);
+        return result;
+    }
+
+    /** Print results the way GameState.main prints games played one after the other, <br>
+     * followed by the average score and the wall-clock time, CPU time and allocation <br>
+     * of the finder's threads over all games (CPU time and allocation are left out of <br>
+     * the sums where they could not be measured). */
+    public static void printResults(List<GameResult> results) {
+        var df= new DecimalFormat("#.##");
+        var totalScore= 0L;
+        long wall= 0;
+        long cpu= 0;
+        long allocated= 0;
+        for (GameResult r : results) {
+            wall+= r.getHuntWallNanos() + r.getFleeWallNanos();
+            cpu+= Math.max(r.getHuntCpuNanos(), 0) + Math.max(r.getFleeCpuNanos(), 0);
+            allocated+= Math.max(r.getHuntAllocatedBytes(), 0) +
+                Math.max(r.getFleeAllocatedBytes(), 0);
+            GameState.outPrintln("Seed : " + r.getSeed());
+            GameState.outPrintln("Gold collected   : " + r.getGold());
+            GameState.outPrintln("Bonus multiplier : " + df.format(r.getBonus()));
+            GameState.outPrintln("Score            : " + r.getScore());
+            GameState.outPrintln("");
+            totalScore+= r.getScore();
+        }
+        GameState.outPrintln("Average score : " + totalScore / Math.max(results.size(), 1));
+        GameState.outPrintln("Finder time   : " + wall / 1_000_000 + " ms wall, " +
+            cpu / 1_000_000 + " ms CPU, " + allocated / (1 << 20) + " MB allocated");
+    }
+}
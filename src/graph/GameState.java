@@ -1,8 +1,10 @@
 package graph;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -14,11 +16,13 @@ import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import algorithm.Pollack;
 import gui.GUI;
-import submit.Pollack;
 
 /** The state of the game, including find and flee phases */
 public class GameState implements FindState, FleeState {
@@ -30,6 +34,10 @@ public class GameState implements FindState, FleeState {
     @SuppressWarnings("serial")
     private static class OutOfStepsException extends RuntimeException {}
 
+    /** Thrown from a call into the state once the current phase's deadline has passed. */
+    @SuppressWarnings("serial")
+    private static class OutOfTimeException extends RuntimeException {}
+
     static boolean shouldPrint= true;
 
     /** Minimum number of rows */
@@ -56,6 +64,20 @@ public class GameState implements FindState, FleeState {
     /** Maximum bonus multiplier. */
     public static final double MAX_BONUS= 1.3;
 
+    /** When timeouts are on CPU time: milliseconds between checks of the finder's CPU time */
+    private static final long CPU_POLL_MILLIS= 20;
+    /** Most milliseconds to wait for a stopped finder's thread to finish its phase */
+    private static final long STOP_JOIN_MILLIS= 1000;
+    /** When timeouts are on CPU time: calls into the state between checks of the CPU time, <br>
+     * when the timeout is cooperative */
+    private static final int CPU_CHECK_CALLS= 64;
+    /** When timeouts are on CPU time: a phase is still stopped after this many times <br>
+     * its timeout of wall-clock time, in case the finder is blocked rather than busy */
+    private static final long CPU_WALL_FACTOR= 4;
+
+    /** Runs the deadline hooks of the finders of all games (see TimeBudget) */
+    private static final ScheduledThreadPoolExecutor DEADLINE_HOOKS= deadlineHookExecutor();
+
     /** bigger is nicer - addition to total multiplier */
     private static final double EXTRA_STEPS_FACTOR= 0.3;
     private static final double NO_BONUS_LENGTH= 3;
@@ -89,6 +111,68 @@ public class GameState implements FindState, FleeState {
 
     private int minStepsToFind;
 
+    /** true iff this game prints nothing (its results are reported by a GameRunner) */
+    private boolean quiet= false;
+
+    /** true iff the current phase is checked against deadline on every call into this state */
+    private boolean cooperativeTimeout= false;
+    /** The System.nanoTime() by which the current phase must end */
+    private long deadline;
+
+    /** true iff the current phase has a time limit, which ends at budgetEnd */
+    private boolean timeLimited= false;
+    /** The System.nanoTime() at which the current phase's time limit is reached, as the <br>
+     * finder is told by nanosRemaining(); on CPU time, the CPU limit cannot be reached earlier */
+    private long budgetEnd;
+    /** The finder's hook for the current phase, scheduled before budgetEnd (null if none) */
+    private ScheduledFuture<?> deadlineHook;
+
+    /** true iff timeouts are enforced on the finder thread's CPU time, not wall-clock time */
+    private boolean cpuTimeout= false;
+    /** The CPU time, in nanoseconds, the current phase may use (when cpuTimeout) */
+    private long cpuLimit;
+    /** Calls into this state since the CPU time was last checked (when cpuTimeout) */
+    private int callsSinceCpuCheck;
+
+    /** The record of every move made in this game (null if moves are not recorded) */
+    private MoveTrace trace;
+
+    /** Time spent in the hunt and flee phases, on the finder's thread */
+    private final PhaseTime huntTime= new PhaseTime();
+    private final PhaseTime fleeTime= new PhaseTime();
+
+    /** Number of steps the finder had to flee */
+    private int fleeStepBudget;
+
+    /** The ring through which moves, steps, gold and bonus are published to the GUI <br>
+     * and other observers (null if nothing observes the game) */
+    private EventRing events;
+
+    /** The order in which flee gold is picked up, for forks (null until the first fork, <br>
+     * or until the flee phase if the flee cavern is shared) */
+    private GoldLedger goldLedger;
+
+    /** true iff the flee cavern is shared with other games (see GameCaverns.forRun()), <br>
+     * so that gold is picked up in goldLedger and never on the tiles */
+    private boolean sharedFlee;
+
+    /** Counters and timings of this game */
+    private final GameMetrics metrics= new GameMetrics();
+
+    /** The flight recorder event of the current batch of moves, and its number of moves */
+    private GameEvents.MoveWindow moveWindow;
+    private int windowMoves;
+
+    /** Latencies of the finder API (null if they are not recorded) */
+    private ApiLatencies latencies;
+    /** The think-time histogram of the current phase */
+    private LatencyHistogram think;
+    /** Time at which the finder's last call into the state returned */
+    private long lastCallEnd;
+
+    /** Stack samples of the finder's thread (null if it is not sampled) */
+    private StackProfile profile;
+
     /** Constructor: a new GameState object for finder exp. <br>
      * This constructor takes a path to files storing serialized caverns <br>
      * and simply loads these caverns. */
@@ -110,6 +194,7 @@ public class GameState implements FindState, FleeState {
         stage= Stage.FIND;
         gui= Optional.of(new GUI(findCavern, position.getTile().getRow(),
             position.getTile().getColumn(), 0));
+        observe(new GuiObserver(gui.get()));
     }
 
     /** Constructor: a new random game instance with or without a GUI. */
@@ -120,14 +205,21 @@ public class GameState implements FindState, FleeState {
     /** Constructor: a new game instance using seed seed with or without a GUI, <br>
      * and with the finder used to solve the game. */
     /* package */ GameState(long seed, boolean useGui, Finder exp) {
-        var rand= new Random(seed);
-        var ROWS= rand.nextInt(MAX_ROWS - MIN_ROWS + 1) + MIN_ROWS;
-        var COLS= rand.nextInt(MAX_COLS - MIN_COLS + 1) + MIN_COLS;
-        findCavern= Cavern.digFindCavern(ROWS, COLS, rand);
-        minStepsToFind= findCavern.minPathLengthToTarget(findCavern.getEntrance());
-        var orbTile= findCavern.getTarget().getTile();
-        fleeCavern= Cavern.digFindCavern(ROWS, COLS, orbTile.getRow(), orbTile.getColumn(),
-            rand);
+        this(GameCaverns.generate(seed), useGui, exp);
+    }
+
+    /** Constructor: a new game instance played in caverns, with or without a GUI, <br>
+     * and with the finder used to solve the game. <br>
+     * The game picks up gold in caverns' flee cavern, so caverns must not be used by <br>
+     * another game unless they come from GameCaverns.forRun(). */
+    /* package */ GameState(GameCaverns caverns, boolean useGui, Finder exp) {
+        findCavern= caverns.findCavern;
+        minStepsToFind= caverns.minStepsToFind;
+        fleeCavern= caverns.fleeCavern;
+        sharedFlee= caverns.sharedFlee;
+        seed= caverns.seed;
+        metrics.generationNanos= caverns.generationNanos;
+        metrics.generationRetries= caverns.generationRetries;
 
         position= findCavern.getEntrance();
         stepsTaken= 0;
@@ -137,30 +229,195 @@ public class GameState implements FindState, FleeState {
         finder= exp;
         stage= Stage.FIND;
 
-        this.seed= seed;
-
         if (useGui) {
             gui= Optional.of(new GUI(findCavern, position.getTile().getRow(),
                 position.getTile().getColumn(), seed));
+            observe(new GuiObserver(gui.get()));
         } else {
             gui= Optional.empty();
         }
     }
 
+    /** Shows the moves, steps left, gold and bonus of a game on its GUI, on the thread <br>
+     * of its observer. The finder runs ahead of the animation by up to the capacity of <br>
+     * the ring and then waits for it, so the GUI shows every move. */
+    private static final class GuiObserver implements EventRing.Observer {
+        private final GUI gui;
+
+        private GuiObserver(GUI g) {
+            gui= g;
+        }
+
+        @Override
+        public void onEvent(int kind, Node node, long value) {
+            switch (kind) {
+            case EventRing.MOVE:
+                gui.moveTo(node);
+                break;
+            case EventRing.STEPS_LEFT:
+                gui.updateStepsLeft((int) value);
+                break;
+            case EventRing.GOLD:
+                gui.updateGold((int) (value >> 32), (int) value);
+                break;
+            case EventRing.BONUS:
+                gui.updateBonus(Double.longBitsToDouble(value));
+                break;
+            default:
+                break;
+            }
+        }
+
+        @Override
+        public void onLost(long count) {
+            errPrintln("GUI: " + count + " game events were lost; the game ran ahead of it");
+        }
+
+        @Override
+        public boolean throttles() {
+            return true;
+        }
+    }
+
+    /** Give o every move, steps left, gold and bonus event of this game, on a thread of <br>
+     * its own (see EventRing). Call before the game is run. */
+    /* package */ void observe(EventRing.Observer o) {
+        if (events == null) events= new EventRing(EventRing.DEFAULT_CAPACITY);
+        events.observe(o, "game-events-" + seed);
+    }
+
+    /** Wait until the GUI has shown every event of the hunt phase, so that it does not <br>
+     * show the flee cavern too early. This is between phases, when no time limit runs. */
+    private void awaitGui() {
+        if (gui.isPresent()) events.awaitDrained();
+    }
+
+    /** Let the observers' threads end once they have handled every event; the game <br>
+     * publishes no more. */
+    private void closeEvents() {
+        if (events != null) events.close();
+    }
+
+    /** Publish the gold collected and the score to the observers, if any. */
+    private void publishGold() {
+        if (events != null) {
+            var value= (long) goldCollected << 32 | getScore() & 0xFFFFFFFFL;
+            events.publish(EventRing.GOLD, null, value);
+        }
+    }
+
     /** Run through the game, one step at a time. <br>
      * Will run flee() only if find() succeeds.<br>
      * Will fail in case of timeout. */
     void runWithTimeLimit() {
-        huntWithTimeLimit();
-        if (!findSucceeded) {
-            findStepsLeft= findCavern.minPathLengthToTarget(position);
-            fleeStepsLeft= fleeCavern.minPathLengthToTarget(fleeCavern.getEntrance());
-        } else {
-            fleeWithTimeLimit();
-            if (!fleeSucceeded) {
-                fleeStepsLeft= fleeCavern.minPathLengthToTarget(position);
+        try {
+            huntWithTimeLimit();
+            if (!findSucceeded) {
+                findStepsLeft= minPathLength(findCavern, position);
+                fleeStepsLeft= minPathLength(fleeCavern, fleeCavern.getEntrance());
+            } else {
+                awaitGui();
+                fleeWithTimeLimit();
+                if (!fleeSucceeded) {
+                    fleeStepsLeft= minPathLength(fleeCavern, position);
+                }
+
             }
+        } finally {
+            closeEvents();
+        }
+    }
 
+    /** Run through the game like runWithTimeLimit(), but entirely on the calling thread. <br>
+     * Rather than a watcher thread stopping the finder, every call the finder makes into <br>
+     * this state checks the phase's deadline and ends the phase once it has passed. <br>
+     * No thread is created, so this suits virtual threads; but a finder that stops <br>
+     * calling into the state is never interrupted. */
+    void runWithCooperativeTimeLimit() {
+        cooperativeTimeout= true;
+        try {
+            limitPhase(FI_TIMEOUT);
+            hunt();
+            if (!findSucceeded) {
+                findStepsLeft= minPathLength(findCavern, position);
+                fleeStepsLeft= minPathLength(fleeCavern, fleeCavern.getEntrance());
+            } else {
+                awaitGui();
+                limitPhase(SC_TIMEOUT);
+                flee();
+                if (!fleeSucceeded) {
+                    fleeStepsLeft= minPathLength(fleeCavern, position);
+                }
+            }
+        } finally {
+            cooperativeTimeout= false;
+            closeEvents();
+        }
+    }
+
+    /** Set the limits of a cooperatively time-limited phase that may take seconds seconds: <br>
+     * of CPU time if timeouts are on CPU time (and of CPU_WALL_FACTOR times as much <br>
+     * wall-clock time), of wall-clock time otherwise. */
+    private void limitPhase(long seconds) {
+        startBudget(seconds);
+        var limit= TimeUnit.SECONDS.toNanos(seconds);
+        cpuLimit= limit;
+        callsSinceCpuCheck= 0;
+        deadline= System.nanoTime() + (cpuTimeout ? CPU_WALL_FACTOR * limit : limit);
+    }
+
+    /** Start the time limit of a phase that may take seconds seconds, for nanosRemaining(). */
+    private void startBudget(long seconds) {
+        timeLimited= true;
+        budgetEnd= System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    /** Return the executor of deadline hooks: one daemon thread, created when first needed, <br>
+     * that drops hooks as soon as they are cancelled. */
+    private static ScheduledThreadPoolExecutor deadlineHookExecutor() {
+        var executor= new ScheduledThreadPoolExecutor(1, (r) -> {
+            var t= new Thread(r, "deadline-hooks");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /** Cancel the finder's deadline hook of the current phase, if it has not run yet. */
+    private void cancelDeadlineHook() {
+        if (deadlineHook != null) deadlineHook.cancel(false);
+        deadlineHook= null;
+    }
+
+    /** Enforce timeouts on the CPU time of the finder's thread instead of wall-clock time, <br>
+     * so that a finder starved by other games is not timed out. Where the JVM cannot <br>
+     * measure the thread's CPU time (as on virtual threads), wall-clock time is used. <br>
+     * Call before the game is run. */
+    /* package */ void enforceCpuTime() {
+        cpuTimeout= true;
+    }
+
+    /** Wait for ft, running the phase on thread t, to finish. Throw a TimeoutException <br>
+     * once the phase has taken seconds seconds: of t's CPU time if timeouts are on CPU time <br>
+     * (or CPU_WALL_FACTOR times as much wall-clock time), of wall-clock time otherwise. */
+    private static void awaitPhase(FutureTask<Void> ft, Thread t, long seconds, boolean onCpu)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        if (!onCpu) {
+            ft.get(seconds, TimeUnit.SECONDS);
+            return;
+        }
+        var limit= TimeUnit.SECONDS.toNanos(seconds);
+        var start= System.nanoTime();
+        while (true) {
+            try {
+                ft.get(CPU_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                var wall= System.nanoTime() - start;
+                var cpu= PhaseTime.cpuTime(t);
+                if ((cpu >= 0 ? cpu : wall) > limit || wall > CPU_WALL_FACTOR * limit) throw e;
+            }
         }
     }
 
@@ -168,38 +425,51 @@ public class GameState implements FindState, FleeState {
      * Will run flee() only if hunt() succeeds. <br>
      * Does not use a timeout and will wait as long as necessary. */
     void run() {
-        hunt();
-        if (!findSucceeded) {
-            findStepsLeft= findCavern.minPathLengthToTarget(position);
-            fleeStepsLeft= fleeCavern.minPathLengthToTarget(fleeCavern.getEntrance());
-        } else {
-            flee();
-            if (!fleeSucceeded) {
-                fleeStepsLeft= fleeCavern.minPathLengthToTarget(position);
-                return;
-            }
-            gui.ifPresent((g) -> g.getOptionsPanel().changePhaseLabel("flee Succeeded"));
+        try {
+            hunt();
+            if (!findSucceeded) {
+                findStepsLeft= minPathLength(findCavern, position);
+                fleeStepsLeft= minPathLength(fleeCavern, fleeCavern.getEntrance());
+            } else {
+                awaitGui();
+                flee();
+                if (!fleeSucceeded) {
+                    fleeStepsLeft= minPathLength(fleeCavern, position);
+                    return;
+                }
+                gui.ifPresent((g) -> g.getOptionsPanel().changePhaseLabel("flee Succeeded"));
 
+            }
+        } finally {
+            closeEvents();
         }
     }
 
     /** Run only the hunt mode. Uses timeout. */
     void runHuntWithTimeout() {
-        huntWithTimeLimit();
-        if (!findSucceeded) {
-            findStepsLeft= findCavern.minPathLengthToTarget(position);
+        try {
+            huntWithTimeLimit();
+            if (!findSucceeded) {
+                findStepsLeft= minPathLength(findCavern, position);
+            }
+        } finally {
+            closeEvents();
         }
     }
 
     /** Run only the flee mode. Uses timeout. */
     void runFleeWithTimeout() {
-        fleeWithTimeLimit();
-        if (!fleeSucceeded) {
-            fleeStepsLeft= fleeCavern.minPathLengthToTarget(position);
-            return;
-        }
-        gui.ifPresent((g) -> g.getOptionsPanel().changePhaseLabel("flee succeeded"));
+        try {
+            fleeWithTimeLimit();
+            if (!fleeSucceeded) {
+                fleeStepsLeft= minPathLength(fleeCavern, position);
+                return;
+            }
+            gui.ifPresent((g) -> g.getOptionsPanel().changePhaseLabel("flee succeeded"));
 
+        } finally {
+            closeEvents();
+        }
     }
 
     @SuppressWarnings("deprecation")
@@ -214,11 +484,13 @@ public class GameState implements FindState, FleeState {
         });
 
         var t= new Thread(ft);
+        startBudget(FI_TIMEOUT);
         t.start();
         try {
-            ft.get(FI_TIMEOUT, TimeUnit.SECONDS);
+            awaitPhase(ft, t, FI_TIMEOUT, cpuTimeout);
         } catch (TimeoutException e) {
             t.stop();
+            awaitStopped(t);
             findTimedOut= true;
         } catch (InterruptedException | ExecutionException e) {
             System.err.println("ERROR");
@@ -226,35 +498,63 @@ public class GameState implements FindState, FleeState {
         }
     }
 
+    /** Wait, at most STOP_JOIN_MILLIS, for stopped thread t to run the finally block of <br>
+     * its phase, so that the phase's times and moves are recorded before the game goes on. */
+    private static void awaitStopped(Thread t) {
+        try {
+            t.join(STOP_JOIN_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /** Run the finder's hunt() function with no timeout. */
     /* package */ void hunt() {
         stage= Stage.FIND;
         stepsTaken= 0;
         findSucceeded= false;
         position= findCavern.getEntrance();
-        minFindDistance= findCavern.minPathLengthToTarget(position);
+        minFindDistance= minPathLength(findCavern, position);
+        if (trace != null) trace.beginPhase(MoveTrace.FIND);
         gui.ifPresent((g) -> g.setLighting(false));
         gui.ifPresent((g) -> g.updateCavern(findCavern, 0));
         gui.ifPresent((g) -> g.moveTo(position));
 
+        GameEvents.enter(seed, stage.name());
+        var phase= new GameEvents.Phase();
+        phase.begin();
+        beginMoveWindow();
+        if (latencies != null) startThinking(latencies.huntThink);
+        if (profile != null) StackSampler.start(profile.hunt, "hunt");
+        huntTime.start();
         try {
             finder.find(this);
             // Verify that we returned at the correct location
             if (position.equals(findCavern.getTarget())) {
                 findSucceeded= true;
             } else {
-                errPrintln("Your solution to hunt returned at the wrong location.");
+                reportError("Your solution to hunt returned at the wrong location.");
                 gui.ifPresent((g) -> g
                     .displayError("Your solution to hunt returned at the wrong location."));
             }
+        } catch (OutOfTimeException e) {
+            findTimedOut= true;
         } catch (Throwable t) {
             if (t instanceof ThreadDeath) return;
-            errPrintln("Your code errored during the hunt phase.");
+            reportError("Your code errored during the hunt phase.");
             gui.ifPresent((g) -> g.displayError(
                 "Your code errored during the hunt phase. Please see console output."));
-            errPrintln("Here is the error that occurred.");
-            t.printStackTrace();
+            reportError("Here is the error that occurred.");
+            if (!quiet) t.printStackTrace();
             findErrored= true;
+        } finally {
+            cancelDeadlineHook();
+            huntTime.stop();
+            if (profile != null) StackSampler.stop();
+            if (latencies != null) think.record(System.nanoTime() - lastCallEnd);
+            commitMoveWindow();
+            phase.finish(seed, stage.name(), stepsTaken, findSucceeded, findTimedOut);
+            GameEvents.leave();
         }
     }
 
@@ -270,11 +570,13 @@ public class GameState implements FindState, FleeState {
         });
 
         var t= new Thread(ft);
+        startBudget(SC_TIMEOUT);
         t.start();
         try {
-            ft.get(SC_TIMEOUT, TimeUnit.SECONDS);
+            awaitPhase(ft, t, SC_TIMEOUT, cpuTimeout);
         } catch (TimeoutException e) {
             t.stop();
+            awaitStopped(t);
             fleeTimedOut= true;
         } catch (InterruptedException | ExecutionException e) {
             System.err.println("ERROR");
@@ -287,12 +589,25 @@ public class GameState implements FindState, FleeState {
         stage= Stage.FLEE;
         var orbTile= findCavern.getTarget().getTile();
         position= fleeCavern.getNodeAt(orbTile.getRow(), orbTile.getColumn());
-        minFleeDistance= fleeCavern.minPathLengthToTarget(position);
+        minFleeDistance= minPathLength(fleeCavern, position);
         stepsRemaining= computeStepsToFlee();
+        fleeStepBudget= stepsRemaining;
+        if (trace != null) trace.beginPhase(MoveTrace.FLEE);
         gui.ifPresent((g) -> g.getOptionsPanel().changePhaseLabel("Fleeing"));
         gui.ifPresent((g) -> g.setLighting(true));
         gui.ifPresent((g) -> g.updateCavern(fleeCavern, stepsRemaining));
 
+        GameEvents.enter(seed, stage.name());
+        var phase= new GameEvents.Phase();
+        phase.begin();
+        beginMoveWindow();
+        if (latencies != null) startThinking(latencies.fleeThink);
+        if (profile != null) StackSampler.start(profile.flee, "flee");
+        fleeTime.start();
+        if (sharedFlee) {
+            if (goldLedger == null) goldLedger= new GoldLedger(fleeCavern.indexedGraph());
+            GoldLedger.enter(goldLedger);
+        }
         try {
             if (position.getTile().gold() > 0) grabGold();
             finder.flee(this);
@@ -301,43 +616,122 @@ public class GameState implements FindState, FleeState {
                 fleeSucceeded= true;
                 gui.ifPresent((g) -> g.getOptionsPanel().changePhaseLabel("flee succeeded"));
             } else {
-                errPrintln("Your solution to flee returned at the wrong location.");
+                reportError("Your solution to flee returned at the wrong location.");
                 gui.ifPresent((g) -> g
                     .displayError("Your solution to flee returned at the wrong location."));
             }
         } catch (OutOfStepsException e) {
-            errPrintln("Your solution to flee ran out of steps before returning!");
+            reportError("Your solution to flee ran out of steps before returning!");
             gui.ifPresent((g) -> g
                 .displayError("Your solution to flee ran out of steps before returning!"));
+        } catch (OutOfTimeException e) {
+            fleeTimedOut= true;
+            return;
         } catch (Throwable t) {
             if (t instanceof ThreadDeath) return;
-            errPrintln("Your code errored during the flee phase.");
+            reportError("Your code errored during the flee phase.");
             gui.ifPresent((g) -> g.displayError(
                 "Your code errored during the flee phase. Please see console output."));
-            t.printStackTrace();
+            if (!quiet) t.printStackTrace();
             fleeErrored= true;
+        } finally {
+            if (sharedFlee) GoldLedger.enter(null);
+            cancelDeadlineHook();
+            fleeTime.stop();
+            if (profile != null) StackSampler.stop();
+            if (latencies != null) think.record(System.nanoTime() - lastCallEnd);
+            commitMoveWindow();
+            phase.finish(seed, stage.name(), getFleeStepsUsed(), fleeSucceeded, fleeTimedOut);
+            GameEvents.leave();
         }
 
-        outPrintln("Gold collected   : " + getGoldCollected());
+        report("Gold collected   : " + getGoldCollected());
         var df= new DecimalFormat("#.##");
-        outPrintln("Bonus multiplier : " + df.format(computeBonusFactor()));
-        outPrintln("Score            : " + getScore());
+        report("Bonus multiplier : " + df.format(computeBonusFactor()));
+        report("Score            : " + getScore());
     }
 
     /** Making sure the finder always has the minimum steps needed to flee, <br>
      * add a factor of extra steps proportional to the size of the cavern. */
     private int computeStepsToFlee() {
-        var minScamSteps= fleeCavern.minPathLengthToTarget(position);
+        return fleeStepBudget(fleeCavern, minFleeDistance);
+    }
+
+    /** Return the number of steps a finder gets to flee cavern flee when the shortest <br>
+     * way out has length minScamSteps: that length plus extra steps proportional <br>
+     * to the size of flee. */
+    /* package */ static int fleeStepBudget(Cavern flee, int minScamSteps) {
         return (int) (minScamSteps + EXTRA_STEPS_FACTOR *
-            (Cavern.MAX_EDGE_WEIGHT + 1) * fleeCavern.numOpenTiles() / 2);
+            (Cavern.MAX_EDGE_WEIGHT + 1) * flee.numOpenTiles() / 2);
+    }
 
+    /** Start timing the finder's think time of a phase in h. */
+    private void startThinking(LatencyHistogram h) {
+        think= h;
+        lastCallEnd= System.nanoTime();
+    }
+
+    /** Record in h the engine time of the finder API call that is returning. */
+    private void endCall(LatencyHistogram h) {
+        var now= System.nanoTime();
+        h.record(now - lastCallEnd);
+        lastCallEnd= now;
+    }
+
+    /** Start a new flight recorder window of moves. */
+    private void beginMoveWindow() {
+        moveWindow= new GameEvents.MoveWindow();
+        moveWindow.begin();
+        windowMoves= 0;
+    }
+
+    /** Count one moveTo call in the current window of moves, <br>
+     * moving on to a new window once it holds GameEvents.MOVE_WINDOW calls. */
+    private void countMove() {
+        windowMoves++ ;
+        if (windowMoves == GameEvents.MOVE_WINDOW) {
+            commitMoveWindow();
+            beginMoveWindow();
+        }
+    }
+
+    /** Commit the current window of moves, unless it is empty or there is none, <br>
+     * as for moves made outside hunt() and flee(). */
+    private void commitMoveWindow() {
+        if (windowMoves > 0 && moveWindow != null) {
+            moveWindow.finish(seed, stage.name(), windowMoves);
+        }
+        windowMoves= 0;
+    }
+
+    /** Return cavern.minPathLengthToTarget(start), counting the call and its time <br>
+     * in the metrics of this game. Its flight recorder event is that of this game and <br>
+     * stage, whichever thread calls this; the thread works on no game afterwards. */
+    private int minPathLength(Cavern cavern, Node start) {
+        var t= System.nanoTime();
+        GameEvents.enter(seed, stage.name());
+        int length;
+        try {
+            length= cavern.minPathLengthToTarget(start);
+        } finally {
+            GameEvents.leave();
+        }
+        metrics.minPathNanos+= System.nanoTime() - t;
+        metrics.minPathCalls++ ;
+        return length;
     }
 
     /** Compare the finder's performance on the hunt() stage to the <br>
      * theoretical minimum, compute their bonus factor on a call from MIN_BONUS to MAX_BONUS. <br>
      * Bonus should be minimum if take longer than NO_BONUS_LENGTH times optimal. */
     private double computeBonusFactor() {
-        var huntDiff= (stepsTaken - minStepsToFind) / (double) minStepsToFind;
+        return bonusFactor(stepsTaken, minStepsToFind);
+    }
+
+    /** Return the bonus factor earned by finding the orb in steps steps <br>
+     * when the shortest path to it has length minSteps (see computeBonusFactor()). */
+    /* package */ static double bonusFactor(int steps, int minSteps) {
+        var huntDiff= (steps - minSteps) / (double) minSteps;
         if (huntDiff <= 0) return MAX_BONUS;
         var multDiff= MAX_BONUS - MIN_BONUS;
         return Math.max(MIN_BONUS, MAX_BONUS - huntDiff / NO_BONUS_LENGTH * multDiff);
@@ -348,25 +742,32 @@ public class GameState implements FindState, FleeState {
      * @param id The Id of the neighboring Node to move to */
     @Override
     public void moveTo(long id) {
+        checkTime();
         if (stage != Stage.FIND) {
             throw new IllegalStateException("moveTo(ID) can only be called while exploring!");
         }
 
-        for (Node n : position.getNeighbors()) {
-            if (n.getId() == id) {
-                position= n;
-                stepsTaken++ ;
-                gui.ifPresent((g) -> g.updateBonus(computeBonusFactor()));
-                gui.ifPresent((g) -> g.moveTo(n));
-                return;
-            }
+        var n= position.neighbor(id);
+        if (n == null) {
+            throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
+        }
+        metrics.findMoveCalls++ ;
+        countMove();
+        if (trace != null) trace.move(position, n);
+        position= n;
+        stepsTaken++ ;
+        if (events != null) {
+            var bonus= Double.doubleToRawLongBits(computeBonusFactor());
+            events.publish(EventRing.BONUS, null, bonus);
+            events.publish(EventRing.MOVE, n, 0);
         }
-        throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
+        if (latencies != null) endCall(latencies.findMove);
     }
 
     /** Return the unique id of the current location. */
     @Override
     public long currentLoc() {
+        checkTime();
         if (stage != Stage.FIND) {
             throw new IllegalStateException("getLocation() can only be called while exploring!");
         }
@@ -378,38 +779,106 @@ public class GameState implements FindState, FleeState {
      * unique ID of the node and the distance from that node to the target. */
     @Override
     public Collection<NodeStatus> neighbors() {
+        checkTime();
+        metrics.neighborsCalls++ ;
         if (stage != Stage.FIND) {
             throw new IllegalStateException("getNeighbors() can only be called while exploring!");
         }
 
-        Collection<NodeStatus> options= new ArrayList<>();
-        for (Node n : position.getNeighbors()) {
-            var distance= computeDistanceToTarget(n.getTile().getRow(), n.getTile().getColumn());
-            options.add(new NodeStatus(n.getId(), distance));
+        Collection<NodeStatus> options= new ArrayList<>(position.degree());
+        for (var i= 0; i < position.degree(); i++ ) {
+            var n= position.neighborAt(i);
+            options.add(new NodeStatus(n.getId(), findCavern.gridDistanceToTarget(n)));
         }
+        if (latencies != null) endCall(latencies.neighbors);
         return options;
     }
 
-    /** Return the Manhattan distance from (row, col) to the target */
-    private int computeDistanceToTarget(int row, int col) {
-        return Math.abs(row - findCavern.getTarget().getTile().getRow()) +
-            Math.abs(col - findCavern.getTarget().getTile().getColumn());
+    /** Store the ids of the neighbors of the current location in ids and their distances <br>
+     * to the target in dists, and return how many there are. Allocates nothing. */
+    @Override
+    public int neighbors(long[] ids, int[] dists) {
+        checkTime();
+        metrics.neighborsCalls++ ;
+        if (stage != Stage.FIND) {
+            throw new IllegalStateException("getNeighbors() can only be called while exploring!");
+        }
+        if (ids.length < MAX_NEIGHBORS || dists.length < MAX_NEIGHBORS) {
+            throw new IllegalArgumentException("neighbors needs arrays of length " +
+                MAX_NEIGHBORS);
+        }
+
+        var count= position.degree();
+        for (var i= 0; i < count; i++ ) {
+            var n= position.neighborAt(i);
+            ids[i]= n.getId();
+            dists[i]= findCavern.gridDistanceToTarget(n);
+        }
+        if (latencies != null) endCall(latencies.neighbors);
+        return count;
+    }
+
+    @Override
+    public long nanosRemaining() {
+        checkTime();
+        return timeLimited ? Math.max(budgetEnd - System.nanoTime(), 0) : Long.MAX_VALUE;
+    }
+
+    @Override
+    public void beforeDeadline(long nanosBefore, Runnable hook) {
+        checkTime();
+        if (hook == null) throw new IllegalArgumentException("beforeDeadline: hook is null");
+        cancelDeadlineHook();
+        if (!timeLimited) return;
+        var delay= Math.max(budgetEnd - nanosBefore - System.nanoTime(), 0);
+        deadlineHook= DEADLINE_HOOKS.schedule(hook, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /** Called at the start of every finder API method. <br>
+     * If latencies are recorded, record the finder's think time since its last call. <br>
+     * If the current phase is cooperatively time limited and its deadline has passed, <br>
+     * throw an OutOfTimeException to end the phase. */
+    private void checkTime() {
+        if (latencies != null) {
+            var now= System.nanoTime();
+            think.record(now - lastCallEnd);
+            lastCallEnd= now;
+        }
+        if (cooperativeTimeout && pastDeadline()) {
+            throw new OutOfTimeException();
+        }
+    }
+
+    /** Return true iff the current, cooperatively time-limited phase has run out of time. <br>
+     * On CPU time, the CPU time is only read every CPU_CHECK_CALLS calls, since reading it <br>
+     * costs about as much as a move. */
+    private boolean pastDeadline() {
+        if (System.nanoTime() - deadline > 0) return true;
+        if (!cpuTimeout) return false;
+        callsSinceCpuCheck++ ;
+        if (callsSinceCpuCheck < CPU_CHECK_CALLS) return false;
+        callsSinceCpuCheck= 0;
+        var cpu= (stage == Stage.FIND ? huntTime : fleeTime).cpuSoFar();
+        return cpu < 0 ? System.nanoTime() - deadline + (CPU_WALL_FACTOR - 1) * cpuLimit > 0 :
+            cpu > cpuLimit;
     }
 
     /** Return the Manhattan distance from the current location to the <br>
      * target location on the map. */
     @Override
     public int distanceToOrb() {
+        checkTime();
         if (stage != Stage.FIND) {
             throw new IllegalStateException(
                 "getDistanceToTarget() can only be called while exploring!");
         }
 
-        return computeDistanceToTarget(position.getTile().getRow(), position.getTile().getColumn());
+        return findCavern.gridDistanceToTarget(position);
     }
 
     @Override
     public Node currentNode() {
+        checkTime();
         if (stage != Stage.FLEE) {
             throw new IllegalStateException("getCurrentNode: Error, " +
                 "current Node may not be accessed unless in FLEE");
@@ -419,6 +888,7 @@ public class GameState implements FindState, FleeState {
 
     @Override
     public Node exit() {
+        checkTime();
         if (stage != Stage.FLEE) {
             throw new IllegalStateException("getEntrance: Error, " +
                 "current Node may not be accessed unless in FLEE");
@@ -428,6 +898,7 @@ public class GameState implements FindState, FleeState {
 
     @Override
     public Collection<Node> allNodes() {
+        checkTime();
         if (stage != Stage.FLEE) {
             throw new IllegalStateException("getVertices: Error, " +
                 "Vertices may not be accessed unless in FLEE");
@@ -440,21 +911,176 @@ public class GameState implements FindState, FleeState {
      * Increment the steps taken if successful. */
     @Override
     public void moveTo(Node n) {
+        checkTime();
         if (stage != Stage.FLEE) {
             throw new IllegalStateException("moveTo(Node) can only be called when fleeing!");
         }
-        var distance= position.edge(n).length;
+        var edge= position.exitTo(n);
+        if (edge == null) {
+            throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
+        }
+        var distance= edge.length;
         if (stepsRemaining - distance < 0) { throw new OutOfStepsException(); }
+        metrics.fleeMoveCalls++ ;
+        countMove();
+
+        if (trace != null) trace.move(position, n);
+        position= n;
+        stepsRemaining-= distance;
+        if (events != null) {
+            events.publish(EventRing.STEPS_LEFT, null, stepsRemaining);
+            events.publish(EventRing.MOVE, n, 0);
+        }
+        if (position.getTile().gold() > 0) grabGold();
+        if (latencies != null) endCall(latencies.fleeMove);
+    }
 
-        if (position.getNeighbors().contains(n)) {
-            position= n;
-            stepsRemaining-= distance;
-            gui.ifPresent((g) -> g.updateStepsLeft(stepsRemaining));
-            gui.ifPresent((g) -> g.moveTo(n));
-            if (position.getTile().gold() > 0) grabGold();
-        } else {
-            throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
+    @Override
+    public IndexedGraph indexedGraph() {
+        checkTime();
+        if (stage != Stage.FLEE) {
+            throw new IllegalStateException("indexedGraph: Error, " +
+                "the graph may not be accessed unless in FLEE");
+        }
+        return fleeCavern.indexedGraph();
+    }
+
+    /** Attempt to move the finder to the node with handle handle in indexedGraph(). <br>
+     * Same as moveTo(Node) for that node. */
+    @Override
+    public void moveTo(int handle) {
+        if (stage != Stage.FLEE) {
+            throw new IllegalStateException("moveTo(int) can only be called when fleeing!");
+        }
+        var g= fleeCavern.indexedGraph();
+        if (handle < 0 || handle >= g.size()) {
+            throw new IllegalArgumentException("moveTo: no node has handle " + handle);
+        }
+        moveTo(g.node(handle));
+    }
+
+    /** See FleeState.simulate(int[], RouteOutcome). This is a finder call like moveTo: <br>
+     * it checks the phase's time and reads the position and steps as they are. <br>
+     * It takes time linear in the length of route, which counts as think time. */
+    @Override
+    public RouteOutcome simulate(int[] route, RouteOutcome out) {
+        checkTime();
+        if (stage != Stage.FLEE) {
+            throw new IllegalStateException("simulate can only be called when fleeing!");
+        }
+        return simulateFrom(route, fleeCavern.indexedGraph().handleOf(position),
+            stepsRemaining, out);
+    }
+
+    /** See FleeState.simulate(int[], int, int, RouteOutcome). Any number of threads may <br>
+     * call this at once. If the phase is cooperatively time limited, throw an <br>
+     * OutOfTimeException once its wall-clock deadline has passed; the CPU-time limit <br>
+     * and latencies are left to the calls of the finder's own thread. <br>
+     * It takes time linear in the length of route. */
+    @Override
+    public RouteOutcome simulate(int[] route, int startHandle, int stepsLeft,
+        RouteOutcome out) {
+        if (cooperativeTimeout && System.nanoTime() - deadline > 0) {
+            throw new OutOfTimeException();
+        }
+        if (stage != Stage.FLEE) {
+            throw new IllegalStateException("simulate can only be called when fleeing!");
+        }
+        return simulateFrom(route, startHandle, stepsLeft, out);
+    }
+
+    /** Simulate route from handle start with stepsLeft steps left, reading the gold of <br>
+     * a shared flee cavern from goldLedger rather than from the tiles. */
+    private RouteOutcome simulateFrom(int[] route, int start, int stepsLeft,
+        RouteOutcome out) {
+        var g= fleeCavern.indexedGraph();
+        var exit= g.handleOf(fleeCavern.getTarget());
+        return sharedFlee ? g.simulate(route, start, exit, stepsLeft, goldLedger.goldView, out) :
+            g.simulate(route, start, exit, stepsLeft, out);
+    }
+
+    /** Return a detached copy of the flee phase as it is now (see FleeFork). <br>
+     * The first fork of a game takes time linear in the size of the cavern; <br>
+     * later ones take constant time. */
+    @Override
+    public FleeFork fork() {
+        checkTime();
+        if (stage != Stage.FLEE) {
+            throw new IllegalStateException("fork can only be called when fleeing!");
         }
+        var g= fleeCavern.indexedGraph();
+        if (goldLedger == null) goldLedger= new GoldLedger(g);
+        return new FleeFork(g, goldLedger, g.handleOf(position),
+            g.handleOf(fleeCavern.getTarget()), stepsRemaining, goldCollected,
+            computeBonusFactor(), timeLimited, budgetEnd);
+    }
+
+    /** Pick up the gold on n's tile, record it for forks, and return the amount. <br>
+     * If the flee cavern is shared, the gold is picked up only in goldLedger. */
+    private int takeGold(Node n) {
+        if (sharedFlee) {
+            goldLedger.record(fleeCavern.indexedGraph().handleOf(n));
+            return n.getTile().getOriginalGold();
+        }
+        var gold= n.getTile().takeGold();
+        if (goldLedger != null) goldLedger.record(fleeCavern.indexedGraph().handleOf(n));
+        return gold;
+    }
+
+    /** Move the finder along path, which starts at the current position, in one call. <br>
+     * An empty path is no move at all. <br>
+     * The whole path is checked first: if it is not a path from the current position, <br>
+     * an IllegalArgumentException is thrown, and if it takes more steps than remain, <br>
+     * the flee phase fails, in both cases without moving at all. Then every node is <br>
+     * visited in order, picking up its gold, and the steps left and the gold are <br>
+     * published to observers once, at the end. <br>
+     * Each node after the first counts as one move in the metrics. */
+    @Override
+    public void moveAlong(List<Node> path) {
+        checkTime();
+        if (stage != Stage.FLEE) {
+            throw new IllegalStateException("moveAlong can only be called when fleeing!");
+        }
+        if (path.isEmpty()) {
+            if (latencies != null) endCall(latencies.moveAlong);
+            return;
+        }
+        if (!path.get(0).equals(position)) {
+            throw new IllegalArgumentException("moveAlong: path must start at the current node");
+        }
+
+        var length= 0L;
+        Node prev= null;
+        for (Node n : path) {
+            if (prev != null) {
+                var edge= prev.exitTo(n);
+                if (edge == null) {
+                    throw new IllegalArgumentException("moveAlong: consecutive nodes of " +
+                        "the path must be adjacent");
+                }
+                length+= edge.length;
+            }
+            prev= n;
+        }
+        if (stepsRemaining - length < 0) { throw new OutOfStepsException(); }
+
+        var gold= goldCollected;
+        prev= null;
+        for (Node n : path) {
+            if (prev != null) {
+                metrics.fleeMoveCalls++ ;
+                countMove();
+                if (trace != null) trace.move(prev, n);
+                stepsRemaining-= prev.exitTo(n).length;
+                if (events != null) events.publish(EventRing.MOVE, n, 0);
+                if (n.getTile().gold() > 0) goldCollected+= takeGold(n);
+            }
+            prev= n;
+        }
+        position= prev;
+        if (events != null) events.publish(EventRing.STEPS_LEFT, null, stepsRemaining);
+        if (goldCollected != gold) publishGold();
+        if (latencies != null) endCall(latencies.moveAlong);
     }
 
     @Override
@@ -466,12 +1092,13 @@ public class GameState implements FindState, FleeState {
         } else if (position.getTile().gold() <= 0) {
             throw new IllegalStateException("pickUpGold: Error, no gold on this tile");
         }
-        goldCollected+= position.getTile().takeGold();
-        gui.ifPresent((g) -> g.updateGold(goldCollected, getScore()));
+        goldCollected+= takeGold(position);
+        publishGold();
     }
 
     @Override
     public int stepsLeft() {
+        checkTime();
         if (stage != Stage.FLEE) {
             throw new IllegalStateException(
                 "getStepsRemaining() can be called only while fleeing!");
@@ -528,6 +1155,89 @@ public class GameState implements FindState, FleeState {
         return fleeStepsLeft;
     }
 
+    /* package */ long getSeed() {
+        return seed;
+    }
+
+    /* package */ int getStepsTaken() {
+        return stepsTaken;
+    }
+
+    /* package */ int getMinStepsToFind() {
+        return minStepsToFind;
+    }
+
+    /** Return the number of flee steps used (0 if the flee phase did not run). */
+    /* package */ int getFleeStepsUsed() {
+        return fleeStepBudget - Math.min(stepsRemaining, fleeStepBudget);
+    }
+
+    /* package */ PhaseTime getHuntTime() {
+        return huntTime;
+    }
+
+    /* package */ PhaseTime getFleeTime() {
+        return fleeTime;
+    }
+
+    /* package */ double getBonusFactor() {
+        return computeBonusFactor();
+    }
+
+    /** Return the metrics of this game, which must have finished running. */
+    /* package */ GameMetrics getMetrics() {
+        metrics.seed= seed;
+        metrics.stepsTaken= stepsTaken;
+        metrics.minStepsToFind= minStepsToFind;
+        metrics.fleeStepsUsed= getFleeStepsUsed();
+        metrics.fleeStepBudget= fleeStepBudget;
+        metrics.huntWallNanos= huntTime.getWallNanos();
+        metrics.huntCpuNanos= huntTime.getCpuNanos();
+        metrics.huntAllocatedBytes= huntTime.getAllocatedBytes();
+        metrics.fleeWallNanos= fleeTime.getWallNanos();
+        metrics.fleeCpuNanos= fleeTime.getCpuNanos();
+        metrics.fleeAllocatedBytes= fleeTime.getAllocatedBytes();
+        metrics.gold= goldCollected;
+        metrics.score= getScore();
+        return metrics;
+    }
+
+    /** Start recording every move of this game. Call before the game is run. */
+    /* package */ void recordTrace() {
+        trace= new MoveTrace(seed, findCavern.fingerprint(), fleeCavern.fingerprint());
+    }
+
+    /** Start recording the latencies of the finder API. Call before the game is run. */
+    /* package */ void recordLatencies() {
+        latencies= new ApiLatencies();
+    }
+
+    /** Start sampling the stack of the finder's thread in both phases (see StackSampler). <br>
+     * Call before the game is run. */
+    /* package */ void sampleStacks() {
+        profile= new StackProfile();
+    }
+
+    /** Return the stack samples of the finder's thread, or null if it is not sampled. */
+    /* package */ StackProfile getProfile() {
+        return profile;
+    }
+
+    /** Return the latencies of the finder API, or null if they are not recorded. */
+    /* package */ ApiLatencies getLatencies() {
+        return latencies;
+    }
+
+    /** Return the record of the moves of this game, or null if they are not recorded. */
+    /* package */ MoveTrace getTrace() {
+        return trace;
+    }
+
+    /** Make this game print nothing; its outcome is reported by whoever runs it. */
+    /* package */ void setQuiet() {
+        quiet= true;
+    }
+
     /** Given seed, whether or not to use the GUI, and an instance <br>
      * of a solution to use, run the game. */
     public static int runNewGame(long seed, boolean useGui, Finder solution) {
@@ -542,8 +1252,22 @@ public class GameState implements FindState, FleeState {
         return state.getScore();
     }
 
-    /** Run program in headless mode. args are explained elsewhere. */
-    public static void main(String[] args) throws IOException {
+    /** Run program in headless mode. args are explained elsewhere. <br>
+     * With -t k, the games are played concurrently on k threads by a GameRunner <br>
+     * (-t alone uses one thread per core). <br>
+     * With -v, each game gets its own virtual thread instead, on -c k carrier threads <br>
+     * (one per core by default), and carrier statistics are printed at the end. <br>
+     * With -r file, the moves of every game are recorded to file (see MoveTrace). <br>
+     * With -m file, the metrics of every game are written to file, as CSV if its name <br>
+     * ends in .csv and as JSON lines otherwise (see GameMetrics). <br>
+     * With -l, latency percentiles of the finder API over all games are printed <br>
+     * (see ApiLatencies). <br>
+     * With -u, timeouts are enforced on the CPU time of each game's thread rather than <br>
+     * on wall-clock time, for fair results when the machine is oversubscribed. <br>
+     * With -f dir, the finder's thread is sampled every 2 ms and the stacks of every game <br>
+     * are written to dir/seedS.collapsed (S the seed), for flame graphs <br>
+     * (see StackProfile). */
+    public static void main(String[] args) throws IOException, InterruptedException {
         List<String> argList= new ArrayList<>(Arrays.asList(args));
         var repeatNumberIndex= argList.indexOf("-n");
         var numTimesToRun= 1;
@@ -568,7 +1292,39 @@ public class GameState implements FindState, FleeState {
             }
         }
 
-        var totalScore= 0;
+        if (argList.contains("-v") || argList.contains("-t") || argList.contains("-r") ||
+            argList.contains("-m") || argList.contains("-l") || argList.contains("-u") ||
+            argList.contains("-f")) {
+            if (argList.contains("-v") && !GameRunner.hasVirtualThreads()) {
+                errPrintln("Error, -v needs Java 21 or later");
+                return;
+            }
+            var runner= argList.contains("-v") ?
+                GameRunner.onVirtualThreads(threadCount(argList, "-c"), Pollack::new) :
+                new GameRunner(threadCount(argList, "-t"), Pollack::new);
+            var traceIndex= argList.indexOf("-r");
+            var metricsIndex= argList.indexOf("-m");
+            try (var out= traceIndex < 0 ? null :
+                    FileChannel.open(Path.of(argList.get(traceIndex + 1)),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                var metricsOut= metricsIndex < 0 ? null :
+                    new MetricsWriter(Path.of(argList.get(metricsIndex + 1)))) {
+                if (out != null) runner.recordTraces(out);
+                if (metricsOut != null) runner.writeMetrics(metricsOut);
+                if (argList.contains("-l")) runner.recordLatencies();
+                if (argList.contains("-u")) runner.enforceCpuTime();
+                var profileIndex= argList.indexOf("-f");
+                if (profileIndex >= 0) {
+                    runner.sampleStacks(Path.of(argList.get(profileIndex + 1)),
+                        StackSampler.DEFAULT_INTERVAL_MICROS);
+                }
+                runner.runAndPrint(GameRunner.seeds(seed, numTimesToRun));
+            }
+            return;
+        }
+
+        var totalScore= 0L;
         for (var i= 0; i < numTimesToRun; i++ ) {
             totalScore+= runNewGame(seed, false, new Pollack());
             if (seed != 0) seed= new Random(seed).nextLong();
@@ -578,6 +1334,24 @@ public class GameState implements FindState, FleeState {
         outPrintln("Average score : " + totalScore / numTimesToRun);
     }
 
+    /** Return the number of threads given after option in argList, <br>
+     * or the number of cores if option is absent or not followed by a positive number. */
+    private static int threadCount(List<String> argList, String option) {
+        var cores= Runtime.getRuntime().availableProcessors();
+        var count= Options.intValue(argList, option, cores);
+        return count >= 1 ? count : cores;
+    }
+
+    /** Print s to standard output unless this game is quiet. */
+    private void report(String s) {
+        if (!quiet) outPrintln(s);
+    }
+
+    /** Print s to standard error unless this game is quiet. */
+    private void reportError(String s) {
+        if (!quiet) errPrintln(s);
+    }
+
     static void outPrintln(String s) {
         if (shouldPrint) System.out.println(s);
     }
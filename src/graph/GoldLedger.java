@@ -0,0 +1,84 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/** The order in which the gold of a flee cavern is picked up in a game, kept once the <br>
+ * game is forked so that forks can tell which gold was gone when they were made. <br>
+ * Pickups are numbered 1, 2, ...; gold already gone when the ledger was made has <br>
+ * number 0. A number, once recorded, never changes, so forks may read the ledger <br>
+ * while the game records later pickups: those have numbers above a fork's. <br>
+ * Games played in caverns from GameCaverns.forRun() share the flee cavern, whose <br>
+ * tiles then keep all their gold: such a game picks up gold only in its ledger. <br>
+ * While its flee phase runs, the ledger is entered on the phase's thread, and <br>
+ * Tile.gold() on that thread reports the gold of the cavern's tiles as the ledger has it. */
+/* package */ final class GoldLedger {
+    /** The ledger of the shared flee cavern whose game flees on this thread, if any */
+    private static final ThreadLocal<GoldLedger> ENTERED= new ThreadLocal<>();
+
+    private final IndexedGraph graph;
+    /** The number of the pickup of the gold of each handle, or NOT_TAKEN */
+    private final int[] takenAt;
+    /** Number of pickups recorded */
+    private int pickups;
+
+    private static final int NOT_TAKEN= Integer.MAX_VALUE;
+
+    /** The gold on every handle as this ledger has it, on any thread (see gold(int)) */
+    final IntUnaryOperator goldView= this::gold;
+
+    /** Constructor: a ledger of the gold of g, in which the gold now gone has number 0. */
+    GoldLedger(IndexedGraph g) {
+        graph= g;
+        takenAt= new int[g.size()];
+        Arrays.fill(takenAt, NOT_TAKEN);
+        for (var h= 0; h < takenAt.length; h++ ) {
+            if (g.originalGold(h) > 0 && g.gold(h) == 0) takenAt[h]= 0;
+        }
+    }
+
+    /** Record that the gold of handle h has been picked up. */
+    void record(int h) {
+        pickups++ ;
+        takenAt[h]= pickups;
+    }
+
+    /** Return the number of pickups recorded so far. */
+    int pickups() {
+        return pickups;
+    }
+
+    /** Return the ledger entered on this thread, or null if there is none. */
+    static GoldLedger entered() {
+        return ENTERED.get();
+    }
+
+    /** Make l the ledger of this thread (null for none), until the next call. */
+    static void enter(GoldLedger l) {
+        if (l == null) {
+            ENTERED.remove();
+        } else {
+            ENTERED.set(l);
+        }
+    }
+
+    /** Return the gold on tile t, which is not picked up on the tile itself: <br>
+     * none if t is in this ledger's graph and its gold was picked up, else all of it. */
+    int gold(Tile t) {
+        var h= graph.handleOf(t);
+        return h >= 0 && takenAt[h] != NOT_TAKEN ? 0 : t.getOriginalGold();
+    }
+
+    /** Return the gold on handle h as this ledger has it: none if it was picked up, <br>
+     * else all of it. Unlike Tile.gold(), this does not depend on the ledger entered, <br>
+     * so planner threads may call it while the game records pickups. */
+    int gold(int h) {
+        return takenAt[h] != NOT_TAKEN ? 0 : graph.originalGold(h);
+    }
+
+    /** Return true iff the gold of handle h was picked up in one of the first <br>
+     * pickups pickups (or before the ledger was made). */
+    boolean takenWithin(int h, int pickups) {
+        return takenAt[h] <= pickups;
+    }
+}
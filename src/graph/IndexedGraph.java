@@ -0,0 +1,263 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/** A read-only view of the graph of a cavern in which every node has an int handle, <br>
+ * 0..size()-1, and adjacency and edge weights are primitive arrays, so that a planner <br>
+ * can work without hashing Nodes. Handles are given in increasing order of node id. <br>
+ * The edges leaving handle h are numbered edgeStart(h)..edgeEnd(h)-1, in the order of <br>
+ * Node.exits(). The structure never changes; gold(h) is read from the node's tile, <br>
+ * so it reflects gold that has been picked up (in the game on the calling thread, <br>
+ * where games share the cavern; see GoldLedger). */
+public final class IndexedGraph {
+    /** The handles one thread has visited in its current simulation: handle h was <br>
+     * visited iff stamps[h] == stamp. Reused by every simulation on that thread. */
+    private static final class Visits {
+        private final int[] stamps;
+        private int stamp;
+
+        private Visits(int size) {
+            stamps= new int[size];
+        }
+
+        /** Start a new simulation, in which no handle has been visited. */
+        private void clear() {
+            stamp++ ;
+            if (stamp == 0) {
+                Arrays.fill(stamps, 0);
+                stamp= 1;
+            }
+        }
+    }
+
+    /** The visits of the simulations on each thread */
+    private final ThreadLocal<Visits> visits;
+
+    /** gold(h) as a function, for simulations of the game itself */
+    private final IntUnaryOperator liveGold= this::gold;
+
+    /** The node and the id of every handle */
+    private final Node[] nodes;
+    private final long[] ids;
+
+    /** The edges of handle h are edgeTargets[e] and edgeWeights[e] for <br>
+     * edgeStarts[h] <= e < edgeStarts[h+1] */
+    private final int[] edgeStarts;
+    private final int[] edgeTargets;
+    private final int[] edgeWeights;
+
+    /** The handle of the node on the tile at row r and column c is <br>
+     * cellHandles[r * columns + c], or -1 if no node of the graph is there */
+    private final int columns;
+    private final int[] cellHandles;
+
+    /** Constructor: the view of the graph whose nodes are graph. */
+    public IndexedGraph(Collection<Node> graph) {
+        nodes= graph.toArray(new Node[0]);
+        Arrays.sort(nodes, (a, b) -> Long.compare(a.getId(), b.getId()));
+        ids= new long[nodes.length];
+        var edgeCount= 0;
+        for (var h= 0; h < nodes.length; h++ ) {
+            ids[h]= nodes[h].getId();
+            edgeCount+= nodes[h].exits().size();
+        }
+
+        edgeStarts= new int[nodes.length + 1];
+        edgeTargets= new int[edgeCount];
+        edgeWeights= new int[edgeCount];
+        var e= 0;
+        for (var h= 0; h < nodes.length; h++ ) {
+            edgeStarts[h]= e;
+            for (Edge edge : nodes[h].exits()) {
+                var target= handleOf(edge.getDest());
+                if (target < 0) {
+                    throw new IllegalArgumentException("IndexedGraph: an edge leaves the graph");
+                }
+                edgeTargets[e]= target;
+                edgeWeights[e]= edge.length;
+                e++ ;
+            }
+        }
+        edgeStarts[nodes.length]= e;
+
+        var rows= 0;
+        var cols= 0;
+        for (Node n : nodes) {
+            rows= Math.max(rows, n.getTile().getRow() + 1);
+            cols= Math.max(cols, n.getTile().getColumn() + 1);
+        }
+        columns= cols;
+        cellHandles= new int[rows * cols];
+        Arrays.fill(cellHandles, -1);
+        for (var h= 0; h < nodes.length; h++ ) {
+            var t= nodes[h].getTile();
+            cellHandles[t.getRow() * cols + t.getColumn()]= h;
+        }
+        var size= nodes.length;
+        visits= ThreadLocal.withInitial(() -> new Visits(size));
+    }
+
+    /** Return the number of nodes, so handles are 0..size()-1. */
+    public int size() {
+        return nodes.length;
+    }
+
+    /** Return the number of edges; edges are numbered 0..edgeCount()-1. */
+    public int edgeCount() {
+        return edgeTargets.length;
+    }
+
+    /** Return the handle of the node with id id, or -1 if there is none. <br>
+     * Takes time logarithmic in size(). */
+    public int handleOf(long id) {
+        var h= Arrays.binarySearch(ids, id);
+        return h >= 0 ? h : -1;
+    }
+
+    /** Return the handle of n, or -1 if n is not in the graph. */
+    public int handleOf(Node n) {
+        var h= handleOf(n.getId());
+        return h >= 0 && nodes[h].equals(n) ? h : -1;
+    }
+
+    /** Return the handle of the node whose tile is t, or -1 if t is not in the graph. */
+    /* package */ int handleOf(Tile t) {
+        var r= t.getRow();
+        var c= t.getColumn();
+        if (c >= columns || r * columns + c >= cellHandles.length) return -1;
+        var h= cellHandles[r * columns + c];
+        return h >= 0 && nodes[h].getTile() == t ? h : -1;
+    }
+
+    /** Return a new array of the handles of the nodes of path, in order. <br>
+     * Throw an IllegalArgumentException if a node of path is not in the graph. */
+    public int[] handlesOf(List<Node> path) {
+        var handles= new int[path.size()];
+        var i= 0;
+        for (Node n : path) {
+            handles[i]= handleOf(n);
+            if (handles[i] < 0) {
+                throw new IllegalArgumentException("handlesOf: node " + n.getId() +
+                    " is not in the graph");
+            }
+            i++ ;
+        }
+        return handles;
+    }
+
+    /** Return the edge from handle h to handle k, or -1 if there is none. */
+    public int edgeBetween(int h, int k) {
+        for (var e= edgeStarts[h]; e < edgeStarts[h + 1]; e++ ) {
+            if (edgeTargets[e] == k) return e;
+        }
+        return -1;
+    }
+
+    /** Store in out, and return out, what following route, whose first handle is start, <br>
+     * would achieve under the rules of the flee phase when stepsLeft steps are left: <br>
+     * each edge costs its length, the gold now on a node is picked up the first time the <br>
+     * route reaches it (that of start is already picked up), and the route stops before <br>
+     * an edge that takes more steps than are left. It reaches the exit iff it ends at exit. <br>
+     * Nothing is changed and nothing is allocated, except once per thread, so any number <br>
+     * of threads can simulate at once. Takes time linear in the length of route. <br>
+     * Throw an IllegalArgumentException if start is not a handle, route does not start at <br>
+     * start or two consecutive handles of it are not joined by an edge. */
+    /* package */ RouteOutcome simulate(int[] route, int start, int exit, int stepsLeft,
+        RouteOutcome out) {
+        return simulate(route, start, exit, stepsLeft, liveGold, out);
+    }
+
+    /** Same as simulate(route, start, exit, stepsLeft, out), but with gold.applyAsInt(h) <br>
+     * the gold on handle h, as for a fork of the game. */
+    /* package */ RouteOutcome simulate(int[] route, int start, int exit, int stepsLeft,
+        IntUnaryOperator gold, RouteOutcome out) {
+        if (start < 0 || start >= size()) {
+            throw new IllegalArgumentException("simulate: no node has handle " + start);
+        }
+        if (route.length == 0 || route[0] != start) {
+            throw new IllegalArgumentException("simulate: route must start at the current node");
+        }
+        var v= visits.get();
+        v.clear();
+        v.stamps[start]= v.stamp;
+        var collected= 0;
+        var steps= 0;
+        for (var i= 1; i < route.length; i++ ) {
+            var e= edgeBetween(route[i - 1], route[i]);
+            if (e < 0) {
+                throw new IllegalArgumentException("simulate: consecutive nodes of " +
+                    "the route must be adjacent");
+            }
+            if (steps + edgeWeights[e] > stepsLeft) {
+                out.set(collected, steps, true, false);
+                return out;
+            }
+            steps+= edgeWeights[e];
+            var h= route[i];
+            if (v.stamps[h] != v.stamp) {
+                v.stamps[h]= v.stamp;
+                collected+= gold.applyAsInt(h);
+            }
+        }
+        out.set(collected, steps, false, route[route.length - 1] == exit);
+        return out;
+    }
+
+    /** Return the node with handle h. */
+    public Node node(int h) {
+        return nodes[h];
+    }
+
+    /** Return the id of the node with handle h. */
+    public long id(int h) {
+        return ids[h];
+    }
+
+    /** Return the first edge leaving handle h. */
+    public int edgeStart(int h) {
+        return edgeStarts[h];
+    }
+
+    /** Return one more than the last edge leaving handle h. */
+    public int edgeEnd(int h) {
+        return edgeStarts[h + 1];
+    }
+
+    /** Return the handle that edge e goes to. */
+    public int edgeTarget(int e) {
+        return edgeTargets[e];
+    }
+
+    /** Return the length of edge e. */
+    public int edgeWeight(int e) {
+        return edgeWeights[e];
+    }
+
+    /** Return the gold now on the tile of handle h. */
+    public int gold(int h) {
+        return nodes[h].getTile().gold();
+    }
+
+    /** Return the gold the tile of handle h had at the start of the game. */
+    /* package */ int originalGold(int h) {
+        return nodes[h].getTile().getOriginalGold();
+    }
+
+    /** Return an unmodifiable list of the nodes, by handle. */
+    /* package */ List<Node> nodes() {
+        return Collections.unmodifiableList(Arrays.asList(nodes));
+    }
+
+    /** Return a new array of the gold now on the tile of every handle, by handle. */
+    public int[] copyGold() {
+        var gold= new int[nodes.length];
+        for (var h= 0; h < nodes.length; h++ ) {
+            gold[h]= nodes[h].getTile().gold();
+        }
+        return gold;
+    }
+}
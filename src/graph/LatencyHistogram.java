@@ -0,0 +1,100 @@
+package graph;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A histogram of latencies in nanoseconds, with log-linear buckets in the manner of <br>
+ * HdrHistogram: values below SUB_BUCKETS are counted exactly, and every larger power-of-2 <br>
+ * range is split into SUB_BUCKETS / 2 equal buckets, so a percentile is reported to <br>
+ * within about 6% of the true value. <br>
+ * Recording a value does not allocate; histograms of many games can be merged with add(). <br>
+ * An instance is not thread-safe: record into it from one thread at a time. */
+public final class LatencyHistogram {
+    /** Number of bits of precision kept for every value */
+    private static final int SUB_BITS= 5;
+    /** Number of values below which every value gets its own bucket */
+    private static final int SUB_BUCKETS= 1 << SUB_BITS;
+    /** Number of buckets per power of 2 above SUB_BUCKETS */
+    private static final int HALF= SUB_BUCKETS / 2;
+    /** Number of buckets, enough for every non-negative long */
+    static final int BUCKETS= (64 - SUB_BITS) * HALF + SUB_BUCKETS;
+
+    private final long[] counts= new long[BUCKETS];
+    private long count;
+    private long max;
+
+    /** Record latency nanos (negative values are recorded as 0). */
+    public void record(long nanos) {
+        var v= Math.max(nanos, 0);
+        counts[bucketOf(v)]++ ;
+        count++ ;
+        if (v > max) max= v;
+    }
+
+    /** Add all the values recorded in h to this histogram. */
+    public void add(LatencyHistogram h) {
+        for (var i= 0; i < BUCKETS; i++ ) {
+            counts[i]+= h.counts[i];
+        }
+        count+= h.count;
+        max= Math.max(max, h.max);
+    }
+
+    /** Return the number of values recorded. */
+    public long getCount() {
+        return count;
+    }
+
+    /** Return the largest value recorded (0 if there is none). */
+    public long getMax() {
+        return max;
+    }
+
+    /** Return the value below or at which fraction p of the recorded values lie <br>
+     * (0 if there are none), rounded up to the top of its bucket. <br>
+     * Precondition: 0 <= p <= 1. */
+    public long percentile(double p) {
+        if (count == 0) return 0;
+        var rank= Math.max((long) Math.ceil(p * count), 1);
+        long seen= 0;
+        for (var i= 0; i < BUCKETS; i++ ) {
+            seen+= counts[i];
+            if (seen >= rank) return Math.min(highestInBucket(i), max);
+        }
+        return max;
+    }
+
+    /** Return a histogram of the values counted in counts, indexed by bucketOf(), <br>
+     * whose largest value is max. counts may be updated concurrently; the histogram <br>
+     * is a snapshot, taken without locking. */
+    static LatencyHistogram of(AtomicLongArray counts, long max) {
+        var h= new LatencyHistogram();
+        for (var i= 0; i < BUCKETS; i++ ) {
+            h.counts[i]= counts.get(i);
+            h.count+= h.counts[i];
+        }
+        h.max= max;
+        return h;
+    }
+
+    /** Return the bucket of value v >= 0. */
+    static int bucketOf(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        var shift= 64 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return shift * HALF + (int) (v >>> shift);
+    }
+
+    /** Return the largest value that falls in bucket i. */
+    private static long highestInBucket(int i) {
+        if (i < SUB_BUCKETS) return i;
+        var shift= i / HALF - 1;
+        long sub= i % HALF + HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /** Return a one-line summary: count, p50, p99, p99.9 and max, in microseconds. */
+    @Override
+    public String toString() {
+        return String.format("n %9d  p50 %9.1f  p99 %9.1f  p99.9 %9.1f  max %9.1f", count,
+            percentile(0.5) / 1e3, percentile(0.99) / 1e3, percentile(0.999) / 1e3, max / 1e3);
+    }
+}
@@ -0,0 +1,35 @@
+package graph;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Streams GameMetrics to a file, one game per line, for offline analysis: <br>
+ * as CSV (with a header line) if the file name ends in .csv, as JSON lines otherwise. */
+public class MetricsWriter implements Closeable {
+    private final BufferedWriter out;
+    private final boolean csv;
+
+    /** Constructor: a writer to file, which is created or truncated. */
+    public MetricsWriter(Path file) throws IOException {
+        out= Files.newBufferedWriter(file);
+        csv= file.getFileName().toString().endsWith(".csv");
+        if (csv) {
+            out.write(GameMetrics.CSV_HEADER);
+            out.newLine();
+        }
+    }
+
+    /** Write the metrics m of one game. */
+    public void write(GameMetrics m) throws IOException {
+        out.write(csv ? m.toCsv() : m.toJson());
+        out.newLine();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,187 @@
+package graph;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/** A compact record of the moves of one game, from which TraceReplayer rebuilds and <br>
+ * rescores the game without running the finder. <br>
+ * Every move is between adjacent grid tiles, so it is stored as a 2-bit direction: <br>
+ * 0 north, 1 east, 2 south, 3 west, four moves to a byte. <br>
+ * <br>
+ * Written form (big-endian): int MAGIC, long seed, long find-cavern fingerprint, <br>
+ * long flee-cavern fingerprint, int recorded score, then for each phase played <br>
+ * a marker byte (FIND or FLEE), an int move count and the packed moves, <br>
+ * and finally the marker END. Traces of a batch are written one after the other. */
+public final class MoveTrace {
+    /** First int of every written trace: "GDTR" */
+    static final int MAGIC= 0x47445452;
+
+    /** Phase markers */
+    static final byte END= 0;
+    static final byte FIND= 1;
+    static final byte FLEE= 2;
+
+    private final long seed;
+    private final long findFingerprint;
+    private final long fleeFingerprint;
+    private int score;
+
+    /** Moves of the hunt and flee phases (flee is null until that phase begins) */
+    private Moves find;
+    private Moves flee;
+    private Moves current;
+
+    /** Constructor: an empty trace of the game with seed s, whose caverns have <br>
+     * fingerprints findPrint and fleePrint. */
+    /* package */ MoveTrace(long s, long findPrint, long fleePrint) {
+        seed= s;
+        findFingerprint= findPrint;
+        fleeFingerprint= fleePrint;
+    }
+
+    /** Start recording the moves of phase (FIND or FLEE), forgetting any earlier moves <br>
+     * of that phase. */
+    /* package */ void beginPhase(byte phase) {
+        current= new Moves();
+        if (phase == FIND) {
+            find= current;
+        } else {
+            flee= current;
+        }
+    }
+
+    /** Record a move from node from to the adjacent node to. */
+    /* package */ void move(Node from, Node to) {
+        current.add(direction(from.getTile(), to.getTile()));
+    }
+
+    /** Set the score the game was given, so that a replay can be checked against it. */
+    /* package */ void setScore(int s) {
+        score= s;
+    }
+
+    /** Return the direction (0 north, 1 east, 2 south, 3 west) from tile a to the <br>
+     * adjacent tile b. */
+    private static int direction(Tile a, Tile b) {
+        if (b.getRow() < a.getRow()) return 0;
+        if (b.getColumn() > a.getColumn()) return 1;
+        if (b.getRow() > a.getRow()) return 2;
+        return 3;
+    }
+
+    /** Return the change in row of a move in direction dir. */
+    /* package */ static int rowChange(int dir) {
+        return dir == 0 ? -1 : dir == 2 ? 1 : 0;
+    }
+
+    /** Return the change in column of a move in direction dir. */
+    /* package */ static int columnChange(int dir) {
+        return dir == 1 ? 1 : dir == 3 ? -1 : 0;
+    }
+
+    /** Return the seed of the game. */
+    public long getSeed() {
+        return seed;
+    }
+
+    /** Return the fingerprint of the find cavern (see Cavern.fingerprint()). */
+    public long getFindFingerprint() {
+        return findFingerprint;
+    }
+
+    /** Return the fingerprint of the flee cavern (see Cavern.fingerprint()). */
+    public long getFleeFingerprint() {
+        return fleeFingerprint;
+    }
+
+    /** Return the score the game was given when it was played. */
+    public int getScore() {
+        return score;
+    }
+
+    /** Return true iff the game got to the flee phase. */
+    public boolean hasFlee() {
+        return flee != null;
+    }
+
+    /** Return the number of moves recorded for phase (FIND or FLEE). */
+    public int moveCount(byte phase) {
+        Moves m= phase == FIND ? find : flee;
+        return m == null ? 0 : m.count;
+    }
+
+    /** Return the direction of move i of phase (FIND or FLEE). */
+    public int direction(byte phase, int i) {
+        Moves m= phase == FIND ? find : flee;
+        return m.bytes[i >>> 2] >>> ((i & 3) << 1) & 3;
+    }
+
+    /** Write this trace to out with a single buffer. */
+    public void writeTo(WritableByteChannel out) throws IOException {
+        var size= 4 + 3 * 8 + 4 + 1 + sizeOf(find) + sizeOf(flee);
+        var buf= ByteBuffer.allocate(size);
+        buf.putInt(MAGIC).putLong(seed).putLong(findFingerprint).putLong(fleeFingerprint);
+        buf.putInt(score);
+        put(buf, FIND, find);
+        put(buf, FLEE, flee);
+        buf.put(END);
+        buf.flip();
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+    }
+
+    /** Return the number of bytes phase moves m take when written (0 if m is null). */
+    private static int sizeOf(Moves m) {
+        return m == null ? 0 : 1 + 4 + (m.count + 3) / 4;
+    }
+
+    /** Put phase moves m, marked by phase, in buf, unless m is null. */
+    private static void put(ByteBuffer buf, byte phase, Moves m) {
+        if (m == null) return;
+        var count= m.count;
+        buf.put(phase).putInt(count).put(m.bytes, 0, (count + 3) / 4);
+    }
+
+    /** Read the next trace from in and return it, or return null if in is at its end. */
+    public static MoveTrace readFrom(DataInput in) throws IOException {
+        int magic;
+        try {
+            magic= in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (magic != MAGIC) throw new IOException("Not a move trace");
+        var trace= new MoveTrace(in.readLong(), in.readLong(), in.readLong());
+        trace.score= in.readInt();
+        for (byte phase= in.readByte(); phase != END; phase= in.readByte()) {
+            var m= new Moves();
+            m.count= in.readInt();
+            m.bytes= new byte[(m.count + 3) / 4];
+            in.readFully(m.bytes);
+            if (phase == FIND) {
+                trace.find= m;
+            } else {
+                trace.flee= m;
+            }
+        }
+        return trace;
+    }
+
+    /** The moves of one phase, packed four to a byte, lowest bits first. */
+    private static class Moves {
+        private byte[] bytes= new byte[64];
+        private int count;
+
+        /** Append a move in direction dir. */
+        private void add(int dir) {
+            if (count >>> 2 == bytes.length) bytes= Arrays.copyOf(bytes, 2 * bytes.length);
+            bytes[count >>> 2]|= dir << ((count & 3) << 1);
+            count++ ;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package graph;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Objects;
@@ -17,6 +18,16 @@ public class Node {
 	private final Set<Edge> unmodifiableEdges;
 	private final Set<Node> unmodifiableNeighbors;
 
+	/** The edges leaving this Node in the order they were added, in exitArray[0..degree-1]. <br>
+	 * Together with exitByDirection, these let moves be checked without iterating over sets. */
+	private Edge[] exitArray= new Edge[MAX_DEGREE];
+	private int degree;
+	/** The edge leaving this Node in each Cavern.Direction, by ordinal, or null if there is none */
+	private final Edge[] exitByDirection= new Edge[MAX_DEGREE];
+
+	/** The most edges a node of a grid has: one per direction */
+	/* package */ static final int MAX_DEGREE= 4;
+
 	/** Extra state that belongs to this node */
 	private final Tile tile;
 
@@ -38,8 +49,60 @@ public class Node {
 	}
 
 	/* package */ void addEdge(Edge e) {
-		edges.add(e);
-		neighbors.add(e.other(this));
+		if (!edges.add(e)) return;
+		Node q= e.other(this);
+		neighbors.add(q);
+
+		if (degree == exitArray.length) exitArray= Arrays.copyOf(exitArray, 2 * degree);
+		exitArray[degree]= e;
+		degree++ ;
+		int d= direction(q);
+		if (d >= 0) exitByDirection[d]= e;
+	}
+
+	/** Return the ordinal of the Cavern.Direction from this Node's tile to q's tile, <br>
+	 * or -1 if they are not adjacent on the grid. */
+	private int direction(Node q) {
+		int dr= q.tile.getRow() - tile.getRow();
+		int dc= q.tile.getColumn() - tile.getColumn();
+		if (dc == 0) return dr == -1 ? 0 : dr == 1 ? 2 : -1;
+		if (dr == 0) return dc == 1 ? 1 : dc == -1 ? 3 : -1;
+		return -1;
+	}
+
+	/** Return the number of edges leaving this Node. */
+	/* package */ int degree() {
+		return degree;
+	}
+
+	/** Return the neighbor at the end of the i-th edge added to this Node, <br>
+	 * in the same order as getNeighbors(). Precondition: 0 &lt;= i &lt; degree(). */
+	/* package */ Node neighborAt(int i) {
+		return exitArray[i].getDest();
+	}
+
+	/** Return the neighbor of this Node with id id, or null if there is none. <br>
+	 * Takes constant time and allocates nothing. */
+	/* package */ Node neighbor(long id) {
+		for (int i= 0; i < degree; i++ ) {
+			Node q= exitArray[i].getDest();
+			if (q.id == id) return q;
+		}
+		return null;
+	}
+
+	/** Return the Edge of this Node that connects to Node q, or null if there is none. <br>
+	 * A neighbor on the grid is found directly by its direction. */
+	/* package */ Edge exitTo(Node q) {
+		int d= direction(q);
+		if (d >= 0) {
+			Edge e= exitByDirection[d];
+			return e != null && e.getDest().equals(q) ? e : null;
+		}
+		for (int i= 0; i < degree; i++ ) {
+			if (exitArray[i].getDest().equals(q)) return exitArray[i];
+		}
+		return null;
 	}
 
 	/** Return the unique Identifier of this Node. */
@@ -50,10 +113,11 @@ public class Node {
 	/** Return the Edge of this Node that connects to Node q. Throw an IllegalArgumentException if
 	 * edge doesn't exist */
 	public Edge edge(Node q) {
-		for (Edge e : edges) {
-			if (e.getDest().equals(q)) { return e; }
+		Edge e= exitTo(q);
+		if (e == null) {
+			throw new IllegalArgumentException("getEdge: Node must be a neighbor of this Node");
 		}
-		throw new IllegalArgumentException("getEdge: Node must be a neighbor of this Node");
+		return e;
 	}
 
 	/** Return an unmodifiable view of the Edges leaving this Node. */
@@ -0,0 +1,27 @@
+package graph;
+
+import java.util.List;
+
+/** The command-line options of the engine's programs, each a word such as -n that is <br>
+ * followed by its value. */
+/* package */ final class Options {
+    private Options() {}
+
+    /** Return the word after option in args, or dflt if option is absent or comes last. */
+    static String value(List<String> args, String option, String dflt) {
+        var index= args.indexOf(option);
+        return index >= 0 && index + 1 < args.size() ? args.get(index + 1) : dflt;
+    }
+
+    /** Return the int after option in args, or dflt if option is absent or is not <br>
+     * followed by an int. */
+    static int intValue(List<String> args, String option, int dflt) {
+        var value= value(args, option, null);
+        if (value == null) return dflt;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return dflt;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package graph;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/** The wall-clock time, CPU time and allocated bytes of one phase of a game, <br>
+ * measured on the thread that runs the finder. CPU time and allocation are <br>
+ * -1 where the JVM cannot measure them (as for virtual threads). */
+/* package */ final class PhaseTime {
+    private static final ThreadMXBean THREADS= ManagementFactory.getThreadMXBean();
+
+    /** THREADS, if it can also count allocated bytes (null otherwise) */
+    private static final com.sun.management.ThreadMXBean ALLOCATION=
+        THREADS instanceof com.sun.management.ThreadMXBean &&
+            ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported() ?
+            (com.sun.management.ThreadMXBean) THREADS : null;
+
+    private long wallStart;
+    private long cpuStart;
+    private long allocationStart;
+
+    /** Wall-clock time of the phase, in nanoseconds */
+    private long wallNanos;
+    /** CPU time of the phase, in nanoseconds (-1 if the JVM cannot measure it) */
+    private long cpuNanos;
+    /** Bytes allocated in the phase (-1 if the JVM cannot measure it) */
+    private long allocatedBytes;
+
+    /** Start timing the phase on the calling thread. */
+    void start() {
+        allocationStart= allocatedBytes();
+        cpuStart= cpuTime();
+        wallStart= System.nanoTime();
+    }
+
+    /** Stop timing the phase. Must be called on the thread that called start(). */
+    void stop() {
+        wallNanos= System.nanoTime() - wallStart;
+        var cpu= cpuTime();
+        cpuNanos= cpu < 0 || cpuStart < 0 ? -1 : cpu - cpuStart;
+        var allocated= allocatedBytes();
+        allocatedBytes= allocated < 0 || allocationStart < 0 ? -1 : allocated - allocationStart;
+    }
+
+    /** Return the CPU time used so far in the phase, in nanoseconds, or -1 if unknown. <br>
+     * Must be called on the thread that called start(). */
+    long cpuSoFar() {
+        var cpu= cpuTime();
+        return cpu < 0 || cpuStart < 0 ? -1 : cpu - cpuStart;
+    }
+
+    /** Return the CPU time of the calling thread in nanoseconds, or -1 if unknown. */
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    /** Return the CPU time of thread t in nanoseconds, or -1 if unknown. */
+    static long cpuTime(Thread t) {
+        return THREADS.isThreadCpuTimeSupported() ? THREADS.getThreadCpuTime(t.getId()) : -1;
+    }
+
+    /** Return the bytes allocated so far by the calling thread, or -1 if unknown. */
+    private static long allocatedBytes() {
+        return ALLOCATION == null ? -1 : ALLOCATION.getCurrentThreadAllocatedBytes();
+    }
+
+    /** Return the wall-clock time of the phase, in nanoseconds. */
+    long getWallNanos() {
+        return wallNanos;
+    }
+
+    /** Return the CPU time of the phase, in nanoseconds, or -1 if it was not measured. */
+    long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /** Return the bytes allocated in the phase, or -1 if they were not measured. */
+    long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+}
@@ -0,0 +1,226 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import algorithm.Pollack;
+
+/** A performance and score regression gate. It plays a pinned set of seeds headless, <br>
+ * in parallel, and records for each seed the score, the hunt steps, the flee steps used, <br>
+ * and the wall-clock and CPU time of both phases. It then either stores these as the <br>
+ * baseline or compares them with a stored baseline, seed by seed. <br>
+ * <br>
+ * A regression is flagged when the paired difference is significant at the 99% level <br>
+ * (|t| > Z_99): for scores, when the mean score drops; for time, when the mean log ratio <br>
+ * of new to old phase time grows by more than LATENCY_TOLERANCE. Time is compared on CPU <br>
+ * time when both runs measured it, since it is less disturbed by other games. */
+public class RegressionGate {
+
+    /** z value beyond which a mean paired difference counts as significant */
+    private static final double Z_99= 2.576;
+
+    /** Relative slowdown that is tolerated even when it is significant */
+    private static final double LATENCY_TOLERANCE= 0.05;
+
+    /** First line of a baseline file */
+    private static final String HEADER= "seed,score,stepsTaken,fleeStepsUsed," +
+        "huntWallNanos,huntCpuNanos,fleeWallNanos,fleeCpuNanos";
+
+    /** The measurements of one seed. */
+    private static final class Sample {
+        private final long seed;
+        private final int score;
+        private final int stepsTaken;
+        private final int fleeStepsUsed;
+        private final long huntWall;
+        private final long huntCpu;
+        private final long fleeWall;
+        private final long fleeCpu;
+
+        /** Constructor: the measurements of result r. */
+        private Sample(GameResult r) {
+            this(r.getSeed(), r.getScore(), r.getStepsTaken(), r.getFleeStepsUsed(),
+                r.getHuntWallNanos(), r.getHuntCpuNanos(), r.getFleeWallNanos(),
+                r.getFleeCpuNanos());
+        }
+
+        /** Constructor: the measurements with the given values. */
+        private Sample(long s, int sc, int steps, int fleeSteps,
+            long hWall, long hCpu, long fWall, long fCpu) {
+            seed= s;
+            score= sc;
+            stepsTaken= steps;
+            fleeStepsUsed= fleeSteps;
+            huntWall= hWall;
+            huntCpu= hCpu;
+            fleeWall= fWall;
+            fleeCpu= fCpu;
+        }
+
+        /** Return the measurements in line, a line of a baseline file. */
+        private static Sample parse(String line) {
+            String[] f= line.split(",");
+            return new Sample(Long.parseLong(f[0]), Integer.parseInt(f[1]),
+                Integer.parseInt(f[2]), Integer.parseInt(f[3]), Long.parseLong(f[4]),
+                Long.parseLong(f[5]), Long.parseLong(f[6]), Long.parseLong(f[7]));
+        }
+
+        /** Return this sample as a line of a baseline file. */
+        private String toLine() {
+            return seed + "," + score + "," + stepsTaken + "," + fleeStepsUsed + "," +
+                huntWall + "," + huntCpu + "," + fleeWall + "," + fleeCpu;
+        }
+
+        /** Return the total time of both phases: CPU time if cpu, else wall-clock time. */
+        private long time(boolean cpu) {
+            return cpu ? huntCpu + fleeCpu : huntWall + fleeWall;
+        }
+
+        /** Return true iff CPU time was measured in both phases. */
+        private boolean hasCpu() {
+            return huntCpu >= 0 && fleeCpu >= 0;
+        }
+    }
+
+    /** Accumulates paired differences and tests whether their mean is zero. */
+    private static final class Paired {
+        private int n;
+        private double sum;
+        private double sumSquares;
+
+        /** Add difference d. */
+        private void add(double d) {
+            n++ ;
+            sum+= d;
+            sumSquares+= d * d;
+        }
+
+        /** Return the mean difference. */
+        private double mean() {
+            return n == 0 ? 0 : sum / n;
+        }
+
+        /** Return the t statistic of the mean difference (0 if there is no variation). */
+        private double t() {
+            if (n < 2) return 0;
+            var variance= (sumSquares - sum * sum / n) / (n - 1);
+            if (variance <= 0) return mean() == 0 ? 0 : Math.signum(mean()) * Double.MAX_VALUE;
+            return mean() / Math.sqrt(variance / n);
+        }
+    }
+
+    /** Return the samples of the games played on threads threads for seeds. */
+    private static List<Sample> measure(long[] seeds, int threads) throws InterruptedException {
+        List<Sample> samples= new ArrayList<>(seeds.length);
+        new GameRunner(threads, Pollack::new).run(seeds, (r) -> samples.add(new Sample(r)));
+        return samples;
+    }
+
+    /** Write samples to the baseline file. */
+    private static void store(List<Sample> samples, Path file) throws IOException {
+        List<String> lines= new ArrayList<>(samples.size() + 1);
+        lines.add(HEADER);
+        for (Sample s : samples) lines.add(s.toLine());
+        Files.write(file, lines);
+    }
+
+    /** Return the samples in the baseline file, by seed. */
+    private static Map<Long, Sample> load(Path file) throws IOException {
+        Map<Long, Sample> samples= new HashMap<>();
+        for (String line : Files.readAllLines(file)) {
+            if (line.equals(HEADER) || line.isBlank()) continue;
+            var s= Sample.parse(line);
+            samples.put(s.seed, s);
+        }
+        return samples;
+    }
+
+    /** Compare samples with the baseline, print the comparison and <br>
+     * return true iff there is no significant regression. Fail if a seed of samples <br>
+     * is not in the baseline, which then belongs to other seeds (see -s and -n). */
+    private static boolean compare(List<Sample> samples, Map<Long, Sample> baseline) {
+        var useCpu= true;
+        for (Sample s : samples) {
+            var old= baseline.get(s.seed);
+            if (old != null) useCpu= useCpu && s.hasCpu() && old.hasCpu();
+        }
+
+        var score= new Paired();
+        var steps= new Paired();
+        var fleeSteps= new Paired();
+        var time= new Paired();
+        var missing= 0;
+        for (Sample s : samples) {
+            var old= baseline.get(s.seed);
+            if (old == null) {
+                missing++ ;
+                continue;
+            }
+            score.add(s.score - old.score);
+            steps.add(s.stepsTaken - old.stepsTaken);
+            fleeSteps.add(s.fleeStepsUsed - old.fleeStepsUsed);
+            time.add(Math.log(Math.max(s.time(useCpu), 1) /
+                (double) Math.max(old.time(useCpu), 1)));
+        }
+
+        GameState.outPrintln("Seeds compared     : " + score.n + (missing > 0 ?
+            " (" + missing + " not in baseline)" : ""));
+        if (score.n == 0 || missing > 0) {
+            GameState.outPrintln("FAILED: the baseline does not cover the seeds played; " +
+                "check -s and -n, or write a new baseline with -w");
+            return false;
+        }
+        GameState.outPrintln(String.format("Score change       : %+.2f per game (t = %.2f)",
+            score.mean(), score.t()));
+        GameState.outPrintln(String.format("Hunt steps change  : %+.2f per game",
+            steps.mean()));
+        GameState.outPrintln(String.format("Flee steps change  : %+.2f per game",
+            fleeSteps.mean()));
+        GameState.outPrintln(String.format("%-19s: %+.1f%% (t = %.2f)",
+            useCpu ? "CPU time change" : "Wall time change", 100 * (Math.exp(time.mean()) - 1),
+            time.t()));
+
+        var passed= true;
+        if (score.mean() < 0 && score.t() < -Z_99) {
+            GameState.outPrintln("REGRESSION: scores dropped significantly");
+            passed= false;
+        }
+        if (time.mean() > Math.log(1 + LATENCY_TOLERANCE) && time.t() > Z_99) {
+            GameState.outPrintln("REGRESSION: games got significantly slower");
+            passed= false;
+        }
+        return passed;
+    }
+
+    /** Run the gate. Options: -s first seed (default 1) and -n number of seeds <br>
+     * (default 10000) pin the seed set, as in GameState.main; -t threads (default one <br>
+     * per core); -b baseline file (default regression-baseline.csv); <br>
+     * -w writes a new baseline instead of comparing. <br>
+     * Exits with status 1 if a regression is found. */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> argList= Arrays.asList(args);
+        var seed= Long.parseLong(Options.value(argList, "-s", "1"));
+        var games= Integer.parseInt(Options.value(argList, "-n", "10000"));
+        var threads= Integer.parseInt(Options.value(argList, "-t",
+            "" + Runtime.getRuntime().availableProcessors()));
+        var baseline= Path.of(Options.value(argList, "-b", "regression-baseline.csv"));
+
+        var start= System.nanoTime();
+        var samples= measure(GameRunner.seeds(seed, games), Math.max(threads, 1));
+        GameState.outPrintln("Played " + games + " seeds in " +
+            (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        if (argList.contains("-w")) {
+            store(samples, baseline);
+            GameState.outPrintln("Baseline written to " + baseline);
+        } else if (!compare(samples, load(baseline))) {
+            System.exit(1);
+        }
+    }
+}
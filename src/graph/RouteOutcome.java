@@ -0,0 +1,47 @@
+package graph;
+
+/** What following a route in the flee cavern would achieve, as found by <br>
+ * FleeState.simulate without moving: the gold picked up, the steps used and whether <br>
+ * the route ends at the exit. An instance is meant to be reused from call to call. */
+public final class RouteOutcome {
+    private int gold;
+    private int steps;
+    private boolean outOfSteps;
+    private boolean reachesExit;
+
+    /** Set this outcome to gold gold and steps steps, where the route ran out of steps <br>
+     * iff outOfSteps and ended at the exit iff reachesExit. */
+    /* package */ void set(int gold, int steps, boolean outOfSteps, boolean reachesExit) {
+        this.gold= gold;
+        this.steps= steps;
+        this.outOfSteps= outOfSteps;
+        this.reachesExit= reachesExit;
+    }
+
+    /** Return the gold the route picks up, up to where it stops. */
+    public int getGold() {
+        return gold;
+    }
+
+    /** Return the steps the route uses, up to where it stops. */
+    public int getSteps() {
+        return steps;
+    }
+
+    /** Return true iff the route takes more steps than are left, in which case it <br>
+     * stops at the last node that could be reached and the flee phase would fail. */
+    public boolean isOutOfSteps() {
+        return outOfSteps;
+    }
+
+    /** Return true iff the route ends at the exit within the steps left. */
+    public boolean reachesExit() {
+        return reachesExit;
+    }
+
+    @Override
+    public String toString() {
+        return "gold " + gold + ", steps " + steps + (outOfSteps ? ", out of steps" : "") +
+            (reachesExit ? ", reaches exit" : "");
+    }
+}
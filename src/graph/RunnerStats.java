@@ -0,0 +1,265 @@
+package graph;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/** The statistics of all the games played by GameRunners and Tournaments in this JVM, <br>
+ * registered with the platform MBean server as graph:type=RunnerStats the first time <br>
+ * get() is called. <br>
+ * Game threads update it without locking: counters are LongAdders, the recent scores <br>
+ * a ring of atomics and the phase times atomic histogram buckets. A reader may see <br>
+ * the counters of a game that is halfway through being recorded. */
+public final class RunnerStats implements RunnerStatsMBean {
+    /** Number of recent scores averaged by getRollingMeanScore() */
+    public static final int WINDOW= 1024;
+
+    /** Name under which the statistics are registered */
+    public static final String OBJECT_NAME= "graph:type=RunnerStats";
+
+    /** The statistics of this JVM, registered on first use. */
+    private static final class Holder {
+        private static final RunnerStats STATS= register(new RunnerStats());
+    }
+
+    private final LongAdder queued= new LongAdder();
+    private final LongAdder started= new LongAdder();
+    /** Games submitted but cancelled before they started, such as by shutdownNow() */
+    private final LongAdder cancelled= new LongAdder();
+    private final LongAdder completed= new LongAdder();
+    /** Games the engine could not finish, such as when it threw */
+    private final LongAdder failed= new LongAdder();
+
+    /** The last WINDOW scores; score i is at i % WINDOW */
+    private final AtomicLongArray scores= new AtomicLongArray(WINDOW);
+    /** Number of scores ever added to scores */
+    private final AtomicLong scoreCount= new AtomicLong();
+
+    private final LongAdder huntTimeouts= new LongAdder();
+    private final LongAdder fleeTimeouts= new LongAdder();
+    private final LongAdder huntErrors= new LongAdder();
+    private final LongAdder fleeErrors= new LongAdder();
+
+    private final LongAdder generated= new LongAdder();
+    private final LongAdder generationRetries= new LongAdder();
+    private final LongAdder generationNanos= new LongAdder();
+    private final LongAdder reused= new LongAdder();
+
+    /** Hunt and flee wall-clock times, counted in the buckets of LatencyHistogram */
+    private final AtomicLongArray huntNanos= new AtomicLongArray(LatencyHistogram.BUCKETS);
+    private final AtomicLongArray fleeNanos= new AtomicLongArray(LatencyHistogram.BUCKETS);
+    private final LongAccumulator huntMax= new LongAccumulator(Math::max, 0);
+    private final LongAccumulator fleeMax= new LongAccumulator(Math::max, 0);
+
+    private RunnerStats() {}
+
+    /** Return the statistics of this JVM. */
+    public static RunnerStats get() {
+        return Holder.STATS;
+    }
+
+    /** Register stats with the platform MBean server and return it. <br>
+     * If that fails (say, the name is taken by another class loader's copy), <br>
+     * stats is still kept up to date but cannot be seen over JMX. */
+    private static RunnerStats register(RunnerStats stats) {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(stats, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            GameState.errPrintln("Runner statistics are not visible over JMX: " + e);
+        }
+        return stats;
+    }
+
+    /** Record that a game was submitted to be played and return its ticket. <br>
+     * The game passes the ticket to gameStarted() when it starts; whoever submitted it <br>
+     * passes it to gameCancelled() once the game can no longer start. Whichever comes <br>
+     * first claims the ticket, so every game is counted as started or cancelled, not both. */
+    AtomicBoolean gameQueued() {
+        queued.increment();
+        return new AtomicBoolean();
+    }
+
+    /** Record that the game with ticket t started and return true, <br>
+     * or return false if t was cancelled first, in which case the game must not be played. */
+    boolean gameStarted(AtomicBoolean t) {
+        if (!t.compareAndSet(false, true)) return false;
+        started.increment();
+        return true;
+    }
+
+    /** Record that the game with ticket t was cancelled, unless it started first. */
+    void gameCancelled(AtomicBoolean t) {
+        if (t.compareAndSet(false, true)) cancelled.increment();
+    }
+
+    /** Record that a started game finished with result r. */
+    void gameFinished(GameResult r) {
+        var i= scoreCount.getAndIncrement();
+        scores.set((int) (i % WINDOW), r.getScore());
+        if (r.huntTimedOut()) huntTimeouts.increment();
+        if (r.fleeTimedOut()) fleeTimeouts.increment();
+        if (r.huntErrored()) huntErrors.increment();
+        if (r.fleeErrored()) fleeErrors.increment();
+        huntNanos.incrementAndGet(LatencyHistogram.bucketOf(r.getHuntWallNanos()));
+        huntMax.accumulate(r.getHuntWallNanos());
+        if (r.huntSucceeded()) {
+            fleeNanos.incrementAndGet(LatencyHistogram.bucketOf(r.getFleeWallNanos()));
+            fleeMax.accumulate(r.getFleeWallNanos());
+        }
+        completed.increment();
+    }
+
+    /** Record that a started game ended without a result because the engine failed. */
+    void gameFailed() {
+        failed.increment();
+    }
+
+    /** Record that the caverns of a game were generated in nanos nanoseconds, <br>
+     * throwing away retries caverns on the way. */
+    void cavernsGenerated(long nanos, int retries) {
+        generated.increment();
+        generationNanos.add(nanos);
+        generationRetries.add(retries);
+    }
+
+    /** Record that a game is played in caverns generated for an earlier game. */
+    void cavernsReused() {
+        reused.increment();
+    }
+
+    @Override
+    public long getGamesQueued() {
+        return Math.max(queued.sum() - started.sum() - cancelled.sum(), 0);
+    }
+
+    @Override
+    public long getGamesInFlight() {
+        return Math.max(started.sum() - completed.sum() - failed.sum(), 0);
+    }
+
+    @Override
+    public long getGamesCompleted() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getEngineFailures() {
+        return failed.sum();
+    }
+
+    @Override
+    public double getRollingMeanScore() {
+        var n= (int) Math.min(scoreCount.get(), WINDOW);
+        if (n == 0) return 0;
+        long sum= 0;
+        for (var i= 0; i < n; i++ ) {
+            sum+= scores.get(i);
+        }
+        return (double) sum / n;
+    }
+
+    @Override
+    public long getHuntTimeouts() {
+        return huntTimeouts.sum();
+    }
+
+    @Override
+    public long getFleeTimeouts() {
+        return fleeTimeouts.sum();
+    }
+
+    @Override
+    public long getHuntErrors() {
+        return huntErrors.sum();
+    }
+
+    @Override
+    public long getFleeErrors() {
+        return fleeErrors.sum();
+    }
+
+    @Override
+    public long getCavernsGenerated() {
+        return generated.sum();
+    }
+
+    @Override
+    public long getGenerationRetries() {
+        return generationRetries.sum();
+    }
+
+    @Override
+    public double getMeanGenerationMillis() {
+        var n= generated.sum();
+        return n == 0 ? 0 : generationNanos.sum() / 1e6 / n;
+    }
+
+    @Override
+    public long getCavernsReused() {
+        return reused.sum();
+    }
+
+    @Override
+    public double getCavernHitRate() {
+        var hits= reused.sum();
+        var all= hits + generated.sum();
+        return all == 0 ? 0 : (double) hits / all;
+    }
+
+    /** Return the histogram of the wall-clock times of whole hunt phases. */
+    public LatencyHistogram getHuntHistogram() {
+        return LatencyHistogram.of(huntNanos, huntMax.get());
+    }
+
+    /** Return the histogram of the wall-clock times of whole flee phases. */
+    public LatencyHistogram getFleeHistogram() {
+        return LatencyHistogram.of(fleeNanos, fleeMax.get());
+    }
+
+    @Override
+    public double getHuntPhaseP50Millis() {
+        return getHuntHistogram().percentile(0.5) / 1e6;
+    }
+
+    @Override
+    public double getHuntPhaseP99Millis() {
+        return getHuntHistogram().percentile(0.99) / 1e6;
+    }
+
+    @Override
+    public double getHuntPhaseP999Millis() {
+        return getHuntHistogram().percentile(0.999) / 1e6;
+    }
+
+    @Override
+    public double getHuntPhaseMaxMillis() {
+        return huntMax.get() / 1e6;
+    }
+
+    @Override
+    public double getFleePhaseP50Millis() {
+        return getFleeHistogram().percentile(0.5) / 1e6;
+    }
+
+    @Override
+    public double getFleePhaseP99Millis() {
+        return getFleeHistogram().percentile(0.99) / 1e6;
+    }
+
+    @Override
+    public double getFleePhaseP999Millis() {
+        return getFleeHistogram().percentile(0.999) / 1e6;
+    }
+
+    @Override
+    public double getFleePhaseMaxMillis() {
+        return fleeMax.get() / 1e6;
+    }
+}
@@ -0,0 +1,74 @@
+package graph;
+
+/** The live statistics of every GameRunner and Tournament in this JVM, as shown in <br>
+ * jconsole or any other JMX client under graph:type=RunnerStats. Times are in <br>
+ * milliseconds. The Phase percentiles are of the wall-clock time of a whole hunt or <br>
+ * flee phase, finder thinking included; they are not latencies of single finder API <br>
+ * calls, which GameState -l reports (see ApiLatencies). */
+public interface RunnerStatsMBean {
+    /** Return the number of games submitted that have neither started nor been cancelled. */
+    long getGamesQueued();
+
+    /** Return the number of games being played now. */
+    long getGamesInFlight();
+
+    /** Return the number of games finished. */
+    long getGamesCompleted();
+
+    /** Return the number of games that ended without a result because the engine failed. */
+    long getEngineFailures();
+
+    /** Return the mean score of the last games finished (at most RunnerStats.WINDOW). */
+    double getRollingMeanScore();
+
+    /** Return the number of hunt phases that timed out. */
+    long getHuntTimeouts();
+
+    /** Return the number of flee phases that timed out. */
+    long getFleeTimeouts();
+
+    /** Return the number of hunt phases in which the finder threw an exception. */
+    long getHuntErrors();
+
+    /** Return the number of flee phases in which the finder threw an exception. */
+    long getFleeErrors();
+
+    /** Return the number of games whose caverns were generated. */
+    long getCavernsGenerated();
+
+    /** Return the number of caverns thrown away while generating them. */
+    long getGenerationRetries();
+
+    /** Return the mean time taken to generate the caverns of a game. */
+    double getMeanGenerationMillis();
+
+    /** Return the number of games played in caverns generated for an earlier game. */
+    long getCavernsReused();
+
+    /** Return the fraction of games played in reused caverns. */
+    double getCavernHitRate();
+
+    /** Return the median wall-clock time of a hunt phase. */
+    double getHuntPhaseP50Millis();
+
+    /** Return the 99th percentile of the wall-clock time of a hunt phase. */
+    double getHuntPhaseP99Millis();
+
+    /** Return the 99.9th percentile of the wall-clock time of a hunt phase. */
+    double getHuntPhaseP999Millis();
+
+    /** Return the longest wall-clock time of a hunt phase. */
+    double getHuntPhaseMaxMillis();
+
+    /** Return the median wall-clock time of a flee phase. */
+    double getFleePhaseP50Millis();
+
+    /** Return the 99th percentile of the wall-clock time of a flee phase. */
+    double getFleePhaseP99Millis();
+
+    /** Return the 99.9th percentile of the wall-clock time of a flee phase. */
+    double getFleePhaseP999Millis();
+
+    /** Return the longest wall-clock time of a flee phase. */
+    double getFleePhaseMaxMillis();
+}
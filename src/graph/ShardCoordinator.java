@@ -0,0 +1,353 @@
+package graph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.text.DecimalFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import algorithm.Pollack;
+
+/** Plays a range of seeds in K worker JVMs (see ShardWorker) on this machine, so that <br>
+ * a finder that thrashes the garbage collector or leaks memory only harms its own <br>
+ * worker, whose heap is limited, and not the timings of every other game. <br>
+ * The seeds are split into shards of consecutive seeds, which are handed to workers <br>
+ * over their standard input as they become free; results come back over their standard <br>
+ * output. A worker that dies, cannot be started, or takes longer over a shard than its <br>
+ * games' time limits allow is restarted and its shard is played again, up to <br>
+ * MAX_ATTEMPTS times. Results are merged in the order of the seeds, so the output does <br>
+ * not depend on which worker played what or when. <br>
+ * Every worker plays the same finder class, which it loads from a classpath as an <br>
+ * EvalServer request names it. */
+public class ShardCoordinator {
+
+    /** Most times a shard is played before its seeds are reported as lost */
+    public static final int MAX_ATTEMPTS= 3;
+
+    /** Seconds a worker is given to start, on top of the time its games may take */
+    private static final long START_SECONDS= 30;
+
+    /** A shard: some seeds, and how many times it has been started */
+    private static final class Shard {
+        private final int id;
+        private final long[] seeds;
+        private int attempts;
+
+        private Shard(int id, long[] seeds) {
+            this.id= id;
+            this.seeds= seeds;
+        }
+    }
+
+    /** The result of one game, as reported by a worker */
+    private static final class Game {
+        private final long seed;
+        private final int gold;
+        private final double bonus;
+        private final int score;
+        private final long wallNanos;
+        private final long cpuNanos;
+        private final long allocatedBytes;
+
+        /** Constructor: the game of a GAME message, split into words. */
+        private Game(String[] words) {
+            seed= Long.parseLong(words[1]);
+            gold= Integer.parseInt(words[2]);
+            bonus= Double.parseDouble(words[3]);
+            score= Integer.parseInt(words[4]);
+            wallNanos= Long.parseLong(words[5]);
+            cpuNanos= Long.parseLong(words[6]);
+            allocatedBytes= Long.parseLong(words[7]);
+        }
+    }
+
+    private final int workers;
+    /** Maximum heap of each worker, as for -Xmx (null for the JVM's default) */
+    private final String heap;
+    /** Games each worker plays at once */
+    private final int workerThreads;
+    /** The finder class the workers play, and its classpath as in an EvalServer request */
+    private final String finderClass;
+    private final String classpath;
+
+    /** Shards not yet played (guarded by itself) */
+    private final ArrayDeque<Shard> pending= new ArrayDeque<>();
+    /** Results by seed, and seeds given up on (guarded by results) */
+    private final Map<Long, Game> results= new HashMap<>();
+    private final List<Long> lost= new ArrayList<>();
+    /** Number of workers restarted after dying or failing to start (guarded by results) */
+    private int restarts;
+
+    /** Destroys workers that take too long over a shard, on one daemon thread */
+    private final ScheduledThreadPoolExecutor watchdog= watchdog();
+
+    /** Constructor: a coordinator of workers worker JVMs, each with heap heap (as for -Xmx, <br>
+     * or null for the default) playing workerThreads games of algorithm.Pollack at once. */
+    public ShardCoordinator(int workers, String heap, int workerThreads) {
+        this(workers, heap, workerThreads, Pollack.class.getName(), "-");
+    }
+
+    /** Constructor: a coordinator as above whose workers play finder class finderClass, <br>
+     * loaded from classpath (- for the workers' own classpath) as by an EvalServer. */
+    public ShardCoordinator(int workers, String heap, int workerThreads, String finderClass,
+        String classpath) {
+        if (workers < 1) throw new IllegalArgumentException("A coordinator needs a worker");
+        this.workers= workers;
+        this.heap= heap;
+        this.workerThreads= workerThreads;
+        this.finderClass= finderClass;
+        this.classpath= classpath;
+    }
+
+    /** Play every seed in seeds, in shards of shardSize seeds, and print the results <br>
+     * in the order of seeds as GameRunner.printResults does, then the seeds that were lost. */
+    public void runAndPrint(long[] seeds, int shardSize) throws InterruptedException {
+        for (var s= 0; s * shardSize < seeds.length; s++ ) {
+            pending.add(new Shard(s, Arrays.copyOfRange(seeds, s * shardSize,
+                Math.min((s + 1) * shardSize, seeds.length))));
+        }
+        var threads= new Thread[workers];
+        for (var i= 0; i < workers; i++ ) {
+            var worker= i;
+            threads[i]= new Thread(() -> serve(worker), "shard-worker-" + i);
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        print(seeds);
+    }
+
+    /** Return the executor of watchdogs: one daemon thread, created with the coordinator, <br>
+     * that drops watchdogs as soon as they are cancelled. */
+    private static ScheduledThreadPoolExecutor watchdog() {
+        var executor= new ScheduledThreadPoolExecutor(1, (r) -> {
+            var t= new Thread(r, "shard-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /** Keep worker number worker's JVM busy until no shard is left, restarting it <br>
+     * whenever it dies or fails to start. */
+    private void serve(int worker) {
+        Process p= null;
+        try {
+            Shard shard;
+            while ((shard= nextShard()) != null) {
+                if (p == null || !p.isAlive()) {
+                    try {
+                        p= launch(worker);
+                    } catch (IllegalStateException e) {
+                        GameState.errPrintln(e.getMessage() + ": " + e.getCause());
+                        p= null;
+                        restart(shard);
+                        continue;
+                    }
+                }
+                boolean played;
+                try {
+                    played= play(p, shard);
+                } catch (RuntimeException e) {
+                    GameState.errPrintln("Worker " + worker + " failed over shard " + shard.id +
+                        ": " + e);
+                    played= false;
+                }
+                if (!played) {
+                    p.destroyForcibly();
+                    p= null;
+                    restart(shard);
+                }
+            }
+        } finally {
+            if (p != null) quit(p);
+        }
+    }
+
+    /** Count a restart of the worker that was to play shard s, and queue s again. */
+    private void restart(Shard s) {
+        synchronized (results) {
+            restarts++ ;
+        }
+        retry(s);
+    }
+
+    /** Return the next shard to play, or null if there is none. */
+    private Shard nextShard() {
+        synchronized (pending) {
+            var s= pending.poll();
+            if (s != null) s.attempts++ ;
+            return s;
+        }
+    }
+
+    /** Queue shard s again after its worker died, or give up on the seeds it has not <br>
+     * played if it has been started MAX_ATTEMPTS times. */
+    private void retry(Shard s) {
+        if (s.attempts < MAX_ATTEMPTS) {
+            synchronized (pending) {
+                pending.add(s);
+            }
+            return;
+        }
+        synchronized (results) {
+            for (long seed : s.seeds) {
+                if (!results.containsKey(seed)) lost.add(seed);
+            }
+        }
+    }
+
+    /** Return a new worker JVM for worker number worker. */
+    private Process launch(int worker) {
+        List<String> command= new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (heap != null) command.add("-Xmx" + heap);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardWorker.class.getName());
+        command.add("-t");
+        command.add("" + workerThreads);
+        command.add("-f");
+        command.add(finderClass);
+        command.add("-c");
+        command.add(classpath);
+        try {
+            return new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot start worker " + worker, e);
+        }
+    }
+
+    /** Return the seconds worker p may take over shard s before it is destroyed: enough <br>
+     * to start, and for every game of s to run into both of its time limits, twice over. */
+    private long deadlineSeconds(Shard s) {
+        var rounds= (s.seeds.length + workerThreads - 1) / Math.max(workerThreads, 1);
+        return START_SECONDS + 2 * rounds * (GameState.FI_TIMEOUT + GameState.SC_TIMEOUT);
+    }
+
+    /** Have worker p play shard s and record its results. Return true iff p played <br>
+     * all of s, false if it died first or was destroyed for taking too long. */
+    private boolean play(Process p, Shard s) {
+        var timer= watchdog.schedule(() -> {
+            GameState.errPrintln("Shard " + s.id + " is taking too long; destroying its worker");
+            p.destroyForcibly();
+        }, deadlineSeconds(s), TimeUnit.SECONDS);
+        try {
+            var out= new PrintStream(p.getOutputStream(), true, StandardCharsets.UTF_8);
+            var message= new StringBuilder("SHARD " + s.id);
+            for (long seed : s.seeds) {
+                message.append(' ').append(seed);
+            }
+            out.println(message);
+            if (out.checkError()) return false;
+            var in= new BufferedReader(new InputStreamReader(p.getInputStream(),
+                StandardCharsets.UTF_8));
+            String line;
+            while ((line= in.readLine()) != null) {
+                var words= line.split(" ");
+                if (words[0].equals("GAME") && words.length == 8) {
+                    var g= new Game(words);
+                    synchronized (results) {
+                        results.put(g.seed, g);
+                    }
+                } else if (words[0].equals("DONE") && line.equals("DONE " + s.id)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            timer.cancel(false);
+        }
+    }
+
+    /** Tell worker p to quit, and wait for it. */
+    private static void quit(Process p) {
+        var out= new PrintStream(p.getOutputStream(), true, StandardCharsets.UTF_8);
+        out.println("QUIT");
+        out.close();
+        try {
+            p.waitFor();
+        } catch (InterruptedException e) {
+            p.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Print the merged results of seeds, in that order. */
+    private void print(long[] seeds) {
+        var df= new DecimalFormat("#.##");
+        var totalScore= 0L;
+        long wall= 0;
+        long cpu= 0;
+        long allocated= 0;
+        var played= 0;
+        for (long seed : seeds) {
+            var g= results.get(seed);
+            if (g == null) continue;
+            played++ ;
+            wall+= g.wallNanos;
+            cpu+= g.cpuNanos;
+            allocated+= g.allocatedBytes;
+            GameState.outPrintln("Seed : " + g.seed);
+            GameState.outPrintln("Gold collected   : " + g.gold);
+            GameState.outPrintln("Bonus multiplier : " + df.format(g.bonus));
+            GameState.outPrintln("Score            : " + g.score);
+            GameState.outPrintln("");
+            totalScore+= g.score;
+        }
+        GameState.outPrintln("Average score : " + totalScore / Math.max(played, 1));
+        GameState.outPrintln("Finder time   : " + wall / 1_000_000 + " ms wall, " +
+            cpu / 1_000_000 + " ms CPU, " + allocated / (1 << 20) + " MB allocated");
+        GameState.outPrintln("Workers       : " + workers + ", restarted " + restarts +
+            " times");
+        if (!lost.isEmpty()) {
+            lost.sort(null);
+            GameState.outPrintln("Lost seeds    : " + lost);
+        }
+    }
+
+    /** Run the coordinator. Options: -n N number of games (default 1), -s seed of the <br>
+     * first game (default 1; the others follow as in GameRunner.seeds), -k N worker <br>
+     * JVMs (default one per core), -x heap of each worker as for -Xmx (default the <br>
+     * JVM's), -z N seeds per shard (default 10), -t N games each worker plays at once <br>
+     * (default 1), -f finder class (default algorithm.Pollack), -c classpath of the <br>
+     * finder, as in an EvalServer request (default -). The finder is loaded here first, <br>
+     * so that a finder that cannot be loaded fails at once rather than in every worker. */
+    public static void main(String[] args) throws InterruptedException {
+        List<String> argList= Arrays.asList(args);
+        var count= Integer.parseInt(Options.value(argList, "-n", "1"));
+        var first= Long.parseLong(Options.value(argList, "-s", "1"));
+        var workers= Integer.parseInt(Options.value(argList, "-k",
+            "" + Runtime.getRuntime().availableProcessors()));
+        var heap= Options.value(argList, "-x", null);
+        var shardSize= Integer.parseInt(Options.value(argList, "-z", "10"));
+        var threads= Integer.parseInt(Options.value(argList, "-t", "1"));
+        var finderClass= Options.value(argList, "-f", Pollack.class.getName());
+        var classpath= Options.value(argList, "-c", "-");
+        if (shardSize < 1) throw new IllegalArgumentException("A shard needs a seed");
+        try (var loader= EvalServer.newLoader(classpath)) {
+            ShardWorker.finderConstructor(finderClass, classpath, loader);
+        } catch (IOException | ReflectiveOperationException | ClassCastException e) {
+            GameState.errPrintln("Cannot load finder " + finderClass + ": " + e);
+            return;
+        }
+        new ShardCoordinator(workers, heap, threads, finderClass, classpath)
+            .runAndPrint(GameRunner.seeds(first, count), shardSize);
+    }
+}
@@ -0,0 +1,96 @@
+package graph;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import algorithm.Pollack;
+
+/** A worker JVM started by ShardCoordinator. It reads shards from standard input and <br>
+ * plays them, writing one line per game and one per finished shard to standard output. <br>
+ * Protocol, one message per line: <br>
+ * in:  SHARD id seed seed ... &nbsp; | &nbsp; QUIT <br>
+ * out: GAME seed gold bonus score wallNanos cpuNanos allocatedBytes &nbsp; | &nbsp; DONE id <br>
+ * Anything the games print goes to standard error, so that standard output only <br>
+ * carries the protocol. The finder is loaded as EvalServer loads a request's. */
+public class ShardWorker {
+
+    /** Run the worker. Options: -t N games played at once (default 1), -f finder class <br>
+     * (default algorithm.Pollack), -c classpath of the finder, as in an EvalServer <br>
+     * request (default -, this JVM's own classpath). */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        var out= new PrintStream(new FileOutputStream(FileDescriptor.out), false,
+            StandardCharsets.UTF_8);
+        System.setOut(System.err);
+
+        List<String> argList= Arrays.asList(args);
+        var threads= Options.intValue(argList, "-t", 1);
+        var finderClass= Options.value(argList, "-f", Pollack.class.getName());
+        var classpath= Options.value(argList, "-c", "-");
+        try (var loader= EvalServer.newLoader(classpath)) {
+            Constructor<? extends Finder> ctor;
+            try {
+                ctor= finderConstructor(finderClass, classpath, loader);
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IllegalArgumentException("ShardWorker: cannot load finder " +
+                    finderClass, e);
+            }
+            serve(new GameRunner(threads, () -> EvalServer.newFinder(ctor)), out);
+        }
+    }
+
+    /** Return the no-argument constructor, made accessible, of the Finder class name <br>
+     * loaded by loader, a loader of classpath made by EvalServer.newLoader. <br>
+     * Throw a ClassNotFoundException if the class is not on classpath (unless that is -) <br>
+     * and a ClassCastException if it is not a Finder. */
+    /* package */ static Constructor<? extends Finder> finderConstructor(String name,
+        String classpath, URLClassLoader loader) throws ReflectiveOperationException {
+        var finderClass= Class.forName(name, true, loader);
+        if (!classpath.equals("-") && finderClass.getClassLoader() != loader) {
+            throw new ClassNotFoundException(name + " is not on " + classpath);
+        }
+        Constructor<? extends Finder> ctor= finderClass.asSubclass(Finder.class)
+            .getDeclaredConstructor();
+        ctor.setAccessible(true);
+        return ctor;
+    }
+
+    /** Play the shards read from standard input with runner, writing to out. */
+    private static void serve(GameRunner runner, PrintStream out)
+        throws IOException, InterruptedException {
+        var in= new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line= in.readLine()) != null) {
+            var words= line.trim().split(" ");
+            if (words[0].equals("QUIT")) break;
+            if (!words[0].equals("SHARD") || words.length < 3) {
+                throw new IllegalArgumentException("ShardWorker: bad message " + line);
+            }
+            var seeds= new long[words.length - 2];
+            for (var i= 0; i < seeds.length; i++ ) {
+                seeds[i]= Long.parseLong(words[i + 2]);
+            }
+            runner.run(seeds, (r) -> out.println(gameMessage(r)));
+            out.println("DONE " + words[1]);
+            out.flush();
+        }
+    }
+
+    /** Return the GAME message of result r. */
+    private static String gameMessage(GameResult r) {
+        var wall= r.getHuntWallNanos() + r.getFleeWallNanos();
+        var cpu= Math.max(r.getHuntCpuNanos(), 0) + Math.max(r.getFleeCpuNanos(), 0);
+        var allocated= Math.max(r.getHuntAllocatedBytes(), 0) +
+            Math.max(r.getFleeAllocatedBytes(), 0);
+        return "GAME " + r.getSeed() + " " + r.getGold() + " " + r.getBonus() + " " +
+            r.getScore() + " " + wall + " " + cpu + " " + allocated;
+    }
+}
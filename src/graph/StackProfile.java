@@ -0,0 +1,46 @@
+package graph;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** The stack samples of the finder's thread in one game, per phase, in collapsed-stack <br>
+ * form: each distinct stack is one string of frames, outermost first, separated by ';', <br>
+ * with the number of samples in which it was seen. Stacks start at the GameState phase <br>
+ * method (hunt or flee), so the frames of whatever thread ran the game are left out. <br>
+ * The lines of writeCollapsed() can be fed to flamegraph.pl or speedscope as they are. */
+public final class StackProfile {
+    /** Samples of the hunt phase, by collapsed stack */
+    final Map<String, Long> hunt= new TreeMap<>();
+    /** Samples of the flee phase, by collapsed stack */
+    final Map<String, Long> flee= new TreeMap<>();
+
+    /** Return the samples of the hunt phase, by collapsed stack. */
+    public Map<String, Long> getHunt() {
+        return hunt;
+    }
+
+    /** Return the samples of the flee phase, by collapsed stack. */
+    public Map<String, Long> getFlee() {
+        return flee;
+    }
+
+    /** Return the number of samples taken in both phases. */
+    public long sampleCount() {
+        long n= 0;
+        for (long c : hunt.values()) n+= c;
+        for (long c : flee.values()) n+= c;
+        return n;
+    }
+
+    /** Write the samples of both phases to out, one "stack count" line per stack. */
+    public void writeCollapsed(Writer out) throws IOException {
+        for (Map<String, Long> phase : List.of(hunt, flee)) {
+            for (Map.Entry<String, Long> e : phase.entrySet()) {
+                out.write(e.getKey() + " " + e.getValue() + "\n");
+            }
+        }
+    }
+}
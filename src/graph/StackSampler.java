@@ -0,0 +1,122 @@
+package graph;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/** A sampling profiler for finder threads. One daemon thread, started on first use, <br>
+ * takes the stack of every thread that is being sampled once per interval and counts it <br>
+ * in that thread's collapsed-stack map (see StackProfile). While no thread is being <br>
+ * sampled, it parks until start() is next called. <br>
+ * Sampling costs the finder only the pause needed to take its stack; nothing is done <br>
+ * on a thread that is not being sampled. */
+/* package */ final class StackSampler {
+    /** Default time between samples, in microseconds */
+    static final long DEFAULT_INTERVAL_MICROS= 2000;
+
+    /** A thread being sampled, and where its samples go. */
+    private static final class Target {
+        private final Map<String, Long> samples;
+        private final String root;
+        private boolean active= true;
+
+        private Target(Map<String, Long> s, String r) {
+            samples= s;
+            root= r;
+        }
+    }
+
+    /** The threads being sampled */
+    private static final Map<Thread, Target> TARGETS= new ConcurrentHashMap<>();
+
+    /** Time between samples, in nanoseconds */
+    private static volatile long intervalNanos=
+        TimeUnit.MICROSECONDS.toNanos(DEFAULT_INTERVAL_MICROS);
+
+    /** The sampling thread (null until it is needed) */
+    private static Thread sampler;
+
+    private StackSampler() {}
+
+    /** Take a sample every micros microseconds from now on. */
+    static void setIntervalMicros(long micros) {
+        intervalNanos= TimeUnit.MICROSECONDS.toNanos(Math.max(micros, 100));
+    }
+
+    /** Start sampling the calling thread, which is about to run the phase method <br>
+     * GameState.root, counting its stacks in samples until stop() is called. <br>
+     * samples must not be used by any other thread until then. */
+    static void start(Map<String, Long> samples, String root) {
+        TARGETS.put(Thread.currentThread(), new Target(samples, root));
+        startSampler();
+    }
+
+    /** Stop sampling the calling thread. When this returns, no more samples are added <br>
+     * and all samples taken so far are visible to the calling thread. */
+    static void stop() {
+        var target= TARGETS.remove(Thread.currentThread());
+        if (target == null) return;
+        synchronized (target) {
+            target.active= false;
+        }
+    }
+
+    /** Start the sampling thread if it is not running yet, or wake it if it is parked. */
+    private static synchronized void startSampler() {
+        if (sampler != null) {
+            LockSupport.unpark(sampler);
+            return;
+        }
+        sampler= new Thread(StackSampler::sampleForever, "stack-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /** Sample every target once per interval, for as long as the JVM runs, <br>
+     * parking whenever there is no target. */
+    private static void sampleForever() {
+        var next= System.nanoTime();
+        while (true) {
+            if (TARGETS.isEmpty()) {
+                LockSupport.park();
+                next= System.nanoTime();
+                continue;
+            }
+            for (Map.Entry<Thread, Target> e : TARGETS.entrySet()) {
+                sample(e.getKey(), e.getValue());
+            }
+            next+= intervalNanos;
+            var wait= next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                next= System.nanoTime();
+            }
+        }
+    }
+
+    /** Take the stack of thread t and count it in target, if target is still active. */
+    private static void sample(Thread t, Target target) {
+        StackTraceElement[] stack= t.getStackTrace();
+        var rootIndex= -1;
+        for (var i= stack.length - 1; i >= 0; i-- ) {
+            if (stack[i].getClassName().equals(GameState.class.getName()) &&
+                stack[i].getMethodName().equals(target.root)) {
+                rootIndex= i;
+                break;
+            }
+        }
+        if (rootIndex < 0) return;
+
+        var sb= new StringBuilder();
+        for (var i= rootIndex; i >= 0; i-- ) {
+            if (i < rootIndex) sb.append(';');
+            sb.append(stack[i].getClassName()).append('.').append(stack[i].getMethodName());
+        }
+        var key= sb.toString();
+        synchronized (target) {
+            if (target.active) target.samples.merge(key, 1L, Long::sum);
+        }
+    }
+}
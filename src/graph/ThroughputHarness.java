@@ -0,0 +1,125 @@
+package graph;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import algorithm.Pollack;
+
+/** Measures the capacity of the engine end to end: how many complete headless games of <br>
+ * algorithm.Pollack (generation, both phases with their timeout threads, scoring) are <br>
+ * played per second on 1, 2, 4, ... up to N threads. <br>
+ * Every thread count is first warmed up for a fixed time, whose games are not counted, <br>
+ * and then measured for a fixed time. For each it prints games/s, moves/s (moveTo calls <br>
+ * of both phases) and the share of wall-clock time spent in garbage collection. */
+public class ThroughputHarness {
+
+    /** The games and moves played by one thread. */
+    private static final class Count {
+        private long games;
+        private long moves;
+    }
+
+    /** Plays each game as in a batch, with timeouts (its thread count is not used) */
+    private final GameRunner runner= new GameRunner(1, Pollack::new);
+
+    /** Seed of the next game; every game gets a different seed */
+    private final AtomicLong nextSeed;
+
+    /** Constructor: a harness whose first game has seed seed. */
+    public ThroughputHarness(long seed) {
+        nextSeed= new AtomicLong(seed);
+    }
+
+    /** Play games on threads threads for seconds seconds and print the throughput, <br>
+     * after warming up for warmupSeconds seconds. */
+    public void measure(int threads, long warmupSeconds, long seconds)
+        throws InterruptedException {
+        playFor(threads, warmupSeconds);
+
+        var gcStart= gcMillis();
+        var start= System.nanoTime();
+        var count= playFor(threads, seconds);
+        var wallNanos= System.nanoTime() - start;
+        var gcNanos= TimeUnit.MILLISECONDS.toNanos(gcMillis() - gcStart);
+
+        var secs= wallNanos / 1e9;
+        GameState.outPrintln(String.format("%7d %12.1f %14.0f %9.2f%%", threads,
+            count.games / secs, count.moves / secs, 100.0 * gcNanos / wallNanos));
+    }
+
+    /** Play games on threads threads until seconds seconds have passed, <br>
+     * and return how many games and moves were played. <br>
+     * A game that is running when time is up is finished and counted. */
+    private Count playFor(int threads, long seconds) throws InterruptedException {
+        var end= System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService pool= Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Count>> workers= new ArrayList<>(threads);
+            for (var i= 0; i < threads; i++ ) {
+                workers.add(pool.submit(() -> playUntil(end)));
+            }
+            var total= new Count();
+            for (Future<Count> w : workers) {
+                var c= w.get();
+                total.games+= c.games;
+                total.moves+= c.moves;
+            }
+            return total;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The engine failed while playing a game",
+                e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Play games one after the other until System.nanoTime() passes end, <br>
+     * and return how many games and moves were played. */
+    private Count playUntil(long end) {
+        var c= new Count();
+        while (System.nanoTime() - end < 0) {
+            var m= runner.play(nextSeed.getAndIncrement()).getMetrics();
+            c.games++ ;
+            c.moves+= m.getFindMoveCalls() + m.getFleeMoveCalls();
+        }
+        return c;
+    }
+
+    /** Return the total time all garbage collectors have spent collecting, in ms. */
+    private static long gcMillis() {
+        long total= 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total+= Math.max(gc.getCollectionTime(), 0);
+        }
+        return total;
+    }
+
+    /** Run the harness. Options: -t N the most threads (default one per core), <br>
+     * -d seconds measured per thread count (default 10), -w seconds of warmup per <br>
+     * thread count (default 5), -s seed of the first game (default 1). */
+    public static void main(String[] args) throws InterruptedException {
+        List<String> argList= Arrays.asList(args);
+        var maxThreads= Integer.parseInt(Options.value(argList, "-t",
+            "" + Runtime.getRuntime().availableProcessors()));
+        var seconds= Long.parseLong(Options.value(argList, "-d", "10"));
+        var warmup= Long.parseLong(Options.value(argList, "-w", "5"));
+        var harness= new ThroughputHarness(Long.parseLong(Options.value(argList, "-s", "1")));
+
+        GameState.outPrintln("Warmup " + warmup + " s, measured " + seconds +
+            " s per thread count");
+        GameState.outPrintln("threads      games/s        moves/s   GC time");
+        for (var t= 1; t < maxThreads; t*= 2) {
+            harness.measure(t, warmup, seconds);
+        }
+        harness.measure(Math.max(maxThreads, 1), warmup, seconds);
+    }
+}
@@ -1,5 +1,8 @@
 package graph;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /** A tile is what is on each node of the graph. */
 public class Tile {
 
@@ -36,7 +39,20 @@ public class Tile {
 
 	/** The Type of Tile this Node has */
 	private Type type;
-	private boolean goldPickedUp;
+	/** true once the gold has been picked up; it is claimed atomically, so that <br>
+	 * finders fleeing the same cavern at once never both get it (see FleeArena) */
+	private volatile boolean goldPickedUp;
+
+	private static final VarHandle GOLD_PICKED_UP;
+
+	static {
+		try {
+			GOLD_PICKED_UP= MethodHandles.lookup().findVarHandle(Tile.class, "goldPickedUp",
+				boolean.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
 
 	/** Constructor: an instance with row r, column c, gold g, and Type t. */
 	public Tile(int r, int c, int g, Type t) {
@@ -47,9 +63,13 @@ public class Tile {
 		goldPickedUp= false;
 	}
 
-	/** Return the amount of gold on this Tile. */
+	/** Return the amount of gold on this Tile. <br>
+	 * In the flee phase of a game whose cavern is shared with other games, that is the <br>
+	 * gold the game has left here (see GoldLedger). */
 	public int gold() {
-		return goldPickedUp ? 0 : goldAmount;
+		if (goldPickedUp) return 0;
+		var ledger= GoldLedger.entered();
+		return ledger == null ? goldAmount : ledger.gold(this);
 	}
 
 	/** Return the original gold on this tile. */
@@ -77,10 +97,9 @@ public class Tile {
 		type= t;
 	}
 
-	/** Set the gold on this Node to 0 and return the amount picked up */
+	/** Set the gold on this Node to 0 and return the amount picked up. <br>
+	 * Of several threads that take the gold at the same time, exactly one gets it. */
 	public int takeGold() {
-		int result= gold();
-		goldPickedUp= true;
-		return result;
+		return GOLD_PICKED_UP.compareAndSet(this, false, true) ? goldAmount : 0;
 	}
 }
@@ -0,0 +1,23 @@
+package graph;
+
+/** The time a finder has left in the current phase, for finders that plan until they <br>
+ * run out of time: the hunt phase ends after GameState.FI_TIMEOUT seconds and the flee <br>
+ * phase after GameState.SC_TIMEOUT seconds. Both FindState and FleeState provide it. <br>
+ * These defaults describe a state without a time limit. */
+public interface TimeBudget {
+
+    /** Return the nanoseconds left before the current phase is ended, never negative, <br>
+     * or Long.MAX_VALUE if it has no time limit. This is wall-clock time, read from <br>
+     * System.nanoTime(), and costs about as much as that. */
+    default long nanosRemaining() {
+        return Long.MAX_VALUE;
+    }
+
+    /** Run hook once, nanosBefore nanoseconds before the current phase is ended <br>
+     * (at once if that time has already come), unless the phase ends first. <br>
+     * The hook runs on another thread, shared by all games, so it must be quick and <br>
+     * thread-safe: typically it sets a volatile flag that the finder checks. <br>
+     * A phase has at most one hook: a later call replaces an earlier one. <br>
+     * Nothing is run if the phase has no time limit. */
+    default void beforeDeadline(long nanosBefore, Runnable hook) {}
+}
@@ -0,0 +1,223 @@
+package graph;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/** A tournament plays several finders on the same seeds and ranks them by mean score. <br>
+ * The caverns of each seed are generated once and shared by all competitors: <br>
+ * every run gets the shared find cavern and its own copy of the flee cavern, whose <br>
+ * gold it picks up (see GameCaverns). The (competitor x seed) games are played on a <br>
+ * work-stealing pool, so the cost of a tournament is mostly the finders' own time. */
+public class Tournament {
+
+    /** z value of a two-sided 95% confidence interval */
+    private static final double Z_95= 1.96;
+
+    /** Number of games played at the same time */
+    private final int threads;
+
+    private final List<String> names= new ArrayList<>();
+    private final List<Supplier<? extends Finder>> finders= new ArrayList<>();
+
+    /** The live statistics of this JVM, which every game is counted in */
+    private final RunnerStats stats= RunnerStats.get();
+
+    /** Constructor: a tournament without competitors that plays games on nThreads threads. */
+    public Tournament(int nThreads) {
+        if (nThreads < 1) throw new IllegalArgumentException("A tournament needs a thread");
+        threads= nThreads;
+    }
+
+    /** Enter a competitor called name, which plays each game with a new Finder from finder. */
+    public void addCompetitor(String name, Supplier<? extends Finder> finder) {
+        names.add(name);
+        finders.add(finder);
+    }
+
+    /** Play every competitor once on every seed in seeds, with timeouts, <br>
+     * and return the standings, best mean score first. */
+    public List<Standing> play(long[] seeds) throws InterruptedException {
+        ExecutorService pool= Executors.newWorkStealingPool(threads);
+        List<AtomicBoolean> tickets= new ArrayList<>();
+        try {
+            List<Future<GameCaverns>> generated= new ArrayList<>(seeds.length);
+            for (long seed : seeds) {
+                generated.add(pool.submit(() -> GameCaverns.generate(seed)));
+            }
+            var caverns= new GameCaverns[seeds.length];
+            for (var j= 0; j < seeds.length; j++ ) {
+                caverns[j]= await(generated.get(j));
+                stats.cavernsGenerated(caverns[j].generationNanos, caverns[j].generationRetries);
+            }
+
+            List<List<Future<GameResult>>> games= new ArrayList<>(finders.size());
+            for (Supplier<? extends Finder> finder : finders) {
+                List<Future<GameResult>> row= new ArrayList<>(seeds.length);
+                for (GameCaverns c : caverns) {
+                    if (!games.isEmpty()) stats.cavernsReused();
+                    var ticket= stats.gameQueued();
+                    tickets.add(ticket);
+                    row.add(pool.submit(() -> play(c, finder, ticket)));
+                }
+                games.add(row);
+            }
+
+            List<Standing> standings= new ArrayList<>(finders.size());
+            for (var i= 0; i < finders.size(); i++ ) {
+                List<GameResult> results= new ArrayList<>(seeds.length);
+                for (Future<GameResult> f : games.get(i)) {
+                    results.add(await(f));
+                }
+                standings.add(new Standing(names.get(i), results));
+            }
+            standings.sort(Comparator.comparingDouble(Standing::getMean).reversed());
+            return standings;
+        } finally {
+            pool.shutdownNow();
+            for (AtomicBoolean t : tickets) stats.gameCancelled(t);
+        }
+    }
+
+    /** Play a finder from finder in a run of caverns with timeouts and return the result. <br>
+     * ticket is the game's RunnerStats ticket; if it was cancelled first, <br>
+     * throw a CancellationException instead. */
+    private GameResult play(GameCaverns caverns, Supplier<? extends Finder> finder,
+        AtomicBoolean ticket) {
+        if (!stats.gameStarted(ticket)) throw new CancellationException();
+        GameResult result;
+        try {
+            var state= new GameState(caverns.forRun(), false, finder.get());
+            state.setQuiet();
+            state.runWithTimeLimit();
+            result= new GameResult(state);
+        } catch (RuntimeException | Error e) {
+            stats.gameFailed();
+            throw e;
+        }
+        stats.gameFinished(result);
+        return result;
+    }
+
+    /** Return the value of f, waiting for it if necessary. */
+    private static <T> T await(Future<T> f) throws InterruptedException {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The engine failed while playing a game",
+                e.getCause());
+        }
+    }
+
+    /** The results of one competitor in a tournament. */
+    public static final class Standing {
+        private final String name;
+        private final List<GameResult> results;
+        private final double mean;
+        private final double stdDev;
+
+        /** Constructor: the standing of competitor nm with game results res (not empty). */
+        private Standing(String nm, List<GameResult> res) {
+            name= nm;
+            results= res;
+            var sum= 0.0;
+            for (GameResult r : res) sum+= r.getScore();
+            mean= sum / res.size();
+            var squares= 0.0;
+            for (GameResult r : res) squares+= (r.getScore() - mean) * (r.getScore() - mean);
+            stdDev= res.size() > 1 ? Math.sqrt(squares / (res.size() - 1)) : 0;
+        }
+
+        /** Return the name of the competitor. */
+        public String getName() {
+            return name;
+        }
+
+        /** Return the competitor's results, in seed order. */
+        public List<GameResult> getResults() {
+            return results;
+        }
+
+        /** Return the mean score. */
+        public double getMean() {
+            return mean;
+        }
+
+        /** Return the sample standard deviation of the scores. */
+        public double getStdDev() {
+            return stdDev;
+        }
+
+        /** Return the half width of the 95% confidence interval of the mean score. */
+        public double getConfidence() {
+            return Z_95 * stdDev / Math.sqrt(results.size());
+        }
+
+        /** Return the number of games in which the competitor got out of the cavern. */
+        public int getEscapes() {
+            var n= 0;
+            for (GameResult r : results) {
+                if (r.fleeSucceeded()) n++ ;
+            }
+            return n;
+        }
+    }
+
+    /** Print standings as a ranked leaderboard. */
+    public static void printLeaderboard(List<Standing> standings) {
+        GameState.outPrintln(String.format("%-4s %-30s %10s %10s %10s %8s",
+            "Rank", "Finder", "Mean", "95% CI", "Std dev", "Escapes"));
+        var rank= 1;
+        for (Standing s : standings) {
+            GameState.outPrintln(String.format("%-4d %-30s %10.1f %10s %10.1f %4d/%d",
+                rank++ , s.getName(), s.getMean(), String.format("+-%.1f", s.getConfidence()),
+                s.getStdDev(), s.getEscapes(), s.getResults().size()));
+        }
+    }
+
+    /** Play a tournament between the Finder classes named in args (algorithm.Pollack <br>
+     * if there are none), which need a constructor without parameters. <br>
+     * Options: -n games per finder, -s first seed (as in GameState.main), <br>
+     * -t threads (default one per core). */
+    public static void main(String[] args) throws ReflectiveOperationException,
+        InterruptedException {
+        List<String> argList= new ArrayList<>(Arrays.asList(args));
+        var games= Math.max(takeOption(argList, "-n", 1), 1);
+        var seed= takeOption(argList, "-s", 0);
+        var threads= (int) takeOption(argList, "-t", Runtime.getRuntime().availableProcessors());
+        if (argList.isEmpty()) argList.add("algorithm.Pollack");
+
+        var tournament= new Tournament(Math.max(threads, 1));
+        for (String name : argList) {
+            Constructor<? extends Finder> ctor= Class.forName(name).asSubclass(Finder.class)
+                .getDeclaredConstructor();
+            tournament.addCompetitor(name, () -> {
+                try {
+                    return ctor.newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Cannot create " + name, e);
+                }
+            });
+        }
+        printLeaderboard(tournament.play(GameRunner.seeds(seed, (int) games)));
+    }
+
+    /** Remove option and the number after it from argList and return that number, <br>
+     * or return dflt if option is absent. */
+    private static long takeOption(List<String> argList, String option, long dflt) {
+        var index= argList.indexOf(option);
+        if (index < 0 || index + 1 >= argList.size()) return dflt;
+        var value= Long.parseLong(argList.get(index + 1));
+        argList.subList(index, index + 2).clear();
+        return value;
+    }
+}
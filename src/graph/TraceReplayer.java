@@ -0,0 +1,185 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/** Rebuilds games from MoveTraces and rescores them, without running any finder code. <br>
+ * The caverns are regenerated from the trace's seed and checked against its fingerprints; <br>
+ * gold is tracked in an array, so the caverns are never changed by a replay. <br>
+ * Use it to audit the scores of a batch, or to rescore a batch after the scoring changes. */
+public class TraceReplayer {
+
+    /** The outcome of replaying one trace. */
+    public static final class Replay {
+        private int stepsTaken;
+        private int minStepsToFind;
+        private boolean huntSucceeded;
+        private int fleeStepsUsed;
+        private int fleeStepBudget;
+        private boolean fleeSucceeded;
+        private int gold;
+
+        /** Return the number of steps taken in the hunt phase. */
+        public int getStepsTaken() {
+            return stepsTaken;
+        }
+
+        /** Return the length of a shortest path from the entrance to the orb. */
+        public int getMinStepsToFind() {
+            return minStepsToFind;
+        }
+
+        /** Return true iff the hunt phase ended on the orb. */
+        public boolean huntSucceeded() {
+            return huntSucceeded;
+        }
+
+        /** Return the number of flee steps used. */
+        public int getFleeStepsUsed() {
+            return fleeStepsUsed;
+        }
+
+        /** Return the number of steps the finder had to flee. */
+        public int getFleeStepBudget() {
+            return fleeStepBudget;
+        }
+
+        /** Return true iff the flee phase ended on the exit. */
+        public boolean fleeSucceeded() {
+            return fleeSucceeded;
+        }
+
+        /** Return the gold collected. */
+        public int getGold() {
+            return gold;
+        }
+
+        /** Return the score of the game, computed as GameState does. */
+        public int getScore() {
+            return (int) (GameState.bonusFactor(stepsTaken, minStepsToFind) * gold);
+        }
+    }
+
+    /** Number of moves replayed by this replayer */
+    private long moves;
+    /** Time spent replaying those moves, in nanoseconds, not counting the checks of <br>
+     * the caverns and the flee step budget that come before each phase */
+    private long moveNanos;
+
+    /** Return the number of moves replayed so far. */
+    public long getMoves() {
+        return moves;
+    }
+
+    /** Return the time spent replaying the moves so far, in nanoseconds. */
+    public long getMoveNanos() {
+        return moveNanos;
+    }
+
+    /** Replay trace in caverns regenerated from its seed and return the outcome. <br>
+     * Throw an IllegalArgumentException if the caverns do not match the trace's <br>
+     * fingerprints or the trace contains an impossible move. */
+    public Replay replay(MoveTrace trace) {
+        return replay(trace, GameCaverns.generate(trace.getSeed()));
+    }
+
+    /** Replay trace in caverns and return the outcome. <br>
+     * Throw an IllegalArgumentException if caverns do not match trace's fingerprints <br>
+     * or the trace contains an impossible move. */
+    /* package */ Replay replay(MoveTrace trace, GameCaverns caverns) {
+        var findCavern= caverns.findCavern;
+        var fleeCavern= caverns.fleeCavern;
+        if (findCavern.fingerprint() != trace.getFindFingerprint() ||
+            fleeCavern.fingerprint() != trace.getFleeFingerprint()) {
+            throw new IllegalArgumentException("The trace of seed " + trace.getSeed() +
+                " was recorded in other caverns");
+        }
+
+        var r= new Replay();
+        r.minStepsToFind= caverns.minStepsToFind;
+        var position= findCavern.getEntrance();
+        var n= trace.moveCount(MoveTrace.FIND);
+        var start= System.nanoTime();
+        for (var i= 0; i < n; i++ ) {
+            position= step(findCavern, position, trace.direction(MoveTrace.FIND, i));
+        }
+        moveNanos+= System.nanoTime() - start;
+        r.stepsTaken= n;
+        r.huntSucceeded= position.equals(findCavern.getTarget());
+        moves+= n;
+        if (!trace.hasFlee()) return r;
+
+        var orbTile= findCavern.getTarget().getTile();
+        position= fleeCavern.getNodeAt(orbTile.getRow(), orbTile.getColumn());
+        r.fleeStepBudget= GameState.fleeStepBudget(fleeCavern,
+            fleeCavern.minPathLengthToTarget(position));
+        var cols= fleeCavern.getColumnCount();
+        var taken= new boolean[fleeCavern.getRowCount() * cols];
+        r.gold= takeGold(position, taken, cols);
+        n= trace.moveCount(MoveTrace.FLEE);
+        start= System.nanoTime();
+        for (var i= 0; i < n; i++ ) {
+            var next= step(fleeCavern, position, trace.direction(MoveTrace.FLEE, i));
+            r.fleeStepsUsed+= position.exitTo(next).length;
+            if (r.fleeStepsUsed > r.fleeStepBudget) {
+                throw new IllegalArgumentException("The trace of seed " + trace.getSeed() +
+                    " uses more flee steps than it had");
+            }
+            position= next;
+            r.gold+= takeGold(position, taken, cols);
+        }
+        moveNanos+= System.nanoTime() - start;
+        r.fleeSucceeded= position.equals(fleeCavern.getTarget());
+        moves+= n;
+        return r;
+    }
+
+    /** Return the node of cavern next to from in direction dir. <br>
+     * Throw an IllegalArgumentException if there is no edge between them. */
+    private static Node step(Cavern cavern, Node from, int dir) {
+        var t= from.getTile();
+        var to= cavern.getNodeAt(t.getRow() + MoveTrace.rowChange(dir),
+            t.getColumn() + MoveTrace.columnChange(dir));
+        if (to == null || from.exitTo(to) == null) {
+            throw new IllegalArgumentException("The trace moves through a wall");
+        }
+        return to;
+    }
+
+    /** Return the original gold on n's tile if it is not marked in taken yet, <br>
+     * and mark it; otherwise return 0. taken is indexed by row * cols + column. */
+    private static int takeGold(Node n, boolean[] taken, int cols) {
+        var t= n.getTile();
+        var index= t.getRow() * cols + t.getColumn();
+        if (taken[index]) return 0;
+        taken[index]= true;
+        return t.getOriginalGold();
+    }
+
+    /** Replay every trace in the file args[0], printing for each game the recorded <br>
+     * and replayed score, and finally the replay speed: the moves replayed per second <br>
+     * spent replaying moves, leaving out the regeneration and checks of the caverns. */
+    public static void main(String[] args) throws IOException {
+        var replayer= new TraceReplayer();
+        var games= 0;
+        var mismatches= 0;
+        try (var in= new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(Paths.get(args[0]))))) {
+            for (MoveTrace t= MoveTrace.readFrom(in); t != null; t= MoveTrace.readFrom(in)) {
+                var r= replayer.replay(t, GameCaverns.generate(t.getSeed()));
+                games++ ;
+                var matches= r.getScore() == t.getScore();
+                if (!matches) mismatches++ ;
+                GameState.outPrintln("Seed " + t.getSeed() + " : recorded " + t.getScore() +
+                    ", replayed " + r.getScore() + (matches ? "" : "   MISMATCH"));
+            }
+        }
+        GameState.outPrintln(games + " games, " + mismatches + " mismatches, " +
+            replayer.getMoves() + " moves replayed at " +
+            (long) (replayer.getMoves() / Math.max(replayer.getMoveNanos() / 1e9, 1e-9)) +
+            " moves/s");
+    }
+}
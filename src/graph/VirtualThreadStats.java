@@ -0,0 +1,110 @@
+package graph;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/** An instance watches a batch of games played on virtual threads. <br>
+ * It estimates how busy the carrier threads were, from the process CPU time spent <br>
+ * while it was open, and counts the JFR jdk.VirtualThreadPinned events: a virtual <br>
+ * thread that blocks inside a synchronized block (such as the one in Path.pathSum) <br>
+ * holds on to its carrier. Pinning events are grouped by the first frame outside the JDK. */
+/* package */ class VirtualThreadStats implements AutoCloseable {
+
+    /** Name of the JFR event emitted when a virtual thread parks while pinned */
+    private static final String PINNED_EVENT= "jdk.VirtualThreadPinned";
+
+    /** Number of carrier threads the virtual thread scheduler was given */
+    private final int carriers;
+
+    private final RecordingStream stream;
+    private final LongAdder pinnedEvents= new LongAdder();
+    private final LongAdder pinnedNanos= new LongAdder();
+    private final Map<String, LongAdder> pinnedSites= new ConcurrentHashMap<>();
+
+    private final long startWall;
+    private final long startCpu;
+    private long wallNanos;
+    private long cpuNanos;
+
+    /** Constructor: start watching a batch whose virtual threads run on nCarriers carriers. */
+    /* package */ VirtualThreadStats(int nCarriers) {
+        carriers= nCarriers;
+        stream= new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::recordPinning);
+        stream.startAsync();
+        startWall= System.nanoTime();
+        startCpu= processCpuTime();
+    }
+
+    /** Count e and the frame that caused it. */
+    private void recordPinning(RecordedEvent e) {
+        pinnedEvents.increment();
+        pinnedNanos.add(e.getDuration().toNanos());
+        pinnedSites.computeIfAbsent(pinningSite(e), (k) -> new LongAdder()).increment();
+    }
+
+    /** Return "class.method" of the first frame of e's stack outside the JDK. */
+    private static String pinningSite(RecordedEvent e) {
+        if (e.getStackTrace() == null) return "(no stack trace)";
+        for (RecordedFrame f : e.getStackTrace().getFrames()) {
+            String cls= f.getMethod().getType().getName();
+            if (!cls.startsWith("java.") && !cls.startsWith("jdk.")) {
+                return cls + "." + f.getMethod().getName();
+            }
+        }
+        return "(JDK internal)";
+    }
+
+    /** Return the CPU time used by this process so far, in nanoseconds, or 0 if unknown. */
+    private static long processCpuTime() {
+        var os= ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            var sunOs= (com.sun.management.OperatingSystemMXBean) os;
+            return Math.max(sunOs.getProcessCpuTime(), 0);
+        }
+        return 0;
+    }
+
+    /** Stop watching. Pinning events JFR has not flushed yet are not counted. */
+    @Override
+    public void close() {
+        wallNanos= System.nanoTime() - startWall;
+        cpuNanos= processCpuTime() - startCpu;
+        stream.close();
+    }
+
+    /** Return the fraction of the carriers' capacity that was in use while this was open: <br>
+     * process CPU time divided by wall time times the number of carriers. <br>
+     * This includes the CPU time of the JVM's own threads, so it is an upper bound. */
+    /* package */ double carrierUtilization() {
+        if (wallNanos == 0) return 0;
+        return Math.min(1.0, cpuNanos / ((double) wallNanos * carriers));
+    }
+
+    /** Return the number of pinning events seen. */
+    /* package */ long pinnedEvents() {
+        return pinnedEvents.sum();
+    }
+
+    /** Print the statistics, with the pinning sites sorted by name. */
+    /* package */ void print() {
+        GameState.outPrintln("Carrier threads      : " + carriers);
+        GameState.outPrintln(String.format("Carrier utilization  : %.1f%%",
+            100 * carrierUtilization()));
+        GameState.outPrintln("Pinning events       : " + pinnedEvents() + " (" +
+            pinnedNanos.sum() / 1_000_000 + " ms pinned)");
+        Map<String, LongAdder> sites= new TreeMap<>(pinnedSites);
+        for (Map.Entry<String, LongAdder> site : sites.entrySet()) {
+            GameState.outPrintln("    " + site.getKey() + " : " + site.getValue().sum());
+        }
+    }
+}
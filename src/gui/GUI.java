@@ -16,7 +16,7 @@ import graph.Cavern;
 import graph.GameState;
 import graph.Node;
 import graph.Tile;
-import submit.Pollack;
+import algorithm.Pollack;
 
 /** An instance is a GUI for the game. Run this file as a Java application to test the project. */
 public class GUI extends JFrame {